@@ -0,0 +1,244 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Streams many students from a file straight into a {@code GradeLedger},
+ * or into any consumer such as a bounded-memory {@code LedgerSketch}.
+ * Lines are read one at a time through a buffered channel reader and scores
+ * are parsed in place by {@code ScoreParser}, so working memory stays
+ * constant no matter how large the file is.
+ * <p>
+ * Two layouts are accepted:
+ * <ul>
+ *   <li>Blocks: the {@code grades.txt} layout repeated, nine lines per
+ *       student, with optional blank lines between students.</li>
+ *   <li>CSV: one row per student,
+ *       {@code name,G#,projects,exercises,labs,readings,participation,midterm,final},
+ *       where list fields are double-quoted comma lists such as
+ *       {@code "95, 88"}. A first row starting with {@code name} is skipped.</li>
+ * </ul>
+ */
+public class BatchLoader {
+
+    private static final int READ_BUFFER_CHARS = 1 << 16;
+    private static final int CSV_FIELDS = 9;
+
+    /**
+     * Weights given to every loaded record.
+     */
+    private final double[] weights;
+
+    /**
+     * Build a loader that stamps each record with the given weights.
+     *
+     * @param categoryWeight weights array in {@code StudentRecord} order
+     */
+    public BatchLoader(double[] categoryWeight) {
+        this.weights = categoryWeight.clone();
+    }
+
+    /**
+     * Load a file, picking CSV for names ending in {@code .csv} and the
+     * block layout otherwise.
+     *
+     * @param file   input file
+     * @param ledger destination ledger
+     * @return number of records inserted
+     * @throws IOException if the file cannot be read
+     */
+    public long load(Path file, GradeLedger ledger) throws IOException {
+        return load(file, ledger::insertRecord);
+    }
+
+    /**
+     * Load a file into any consumer, picking the layout as
+     * {@link #load(Path, GradeLedger)} does. Each record is handed over
+     * once, fully populated, and is not touched again by the loader.
+     *
+     * @param file input file
+     * @param sink receives each record in file order
+     * @return number of records read
+     * @throws IOException if the file cannot be read
+     */
+    public long load(Path file, Consumer<StudentRecord> sink) throws IOException {
+        if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+            return loadCsv(file, sink);
+        }
+        return loadBlocks(file, sink);
+    }
+
+    /**
+     * Load repeated nine-line student blocks.
+     *
+     * @param file   input file
+     * @param ledger destination ledger
+     * @return number of records inserted
+     * @throws IOException if the file cannot be read
+     */
+    public long loadBlocks(Path file, GradeLedger ledger) throws IOException {
+        return loadBlocks(file, ledger::insertRecord);
+    }
+
+    /**
+     * Load repeated nine-line student blocks.
+     *
+     * @param file input file
+     * @param sink receives each record in file order
+     * @return number of records read
+     * @throws IOException if the file cannot be read
+     */
+    public long loadBlocks(Path file, Consumer<StudentRecord> sink) throws IOException {
+        long count = 0;
+        long lineNo = 0;
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        long a0 = Metrics.ENABLED ? Metrics.INGEST_FILE.allocationMark() : 0L;
+        try (BufferedReader in = open(file)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                long r0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+
+                StudentRecord rec = new StudentRecord(line, requireLine(in, ++lineNo), weights);
+                ScoreParser.parseList(requireLine(in, ++lineNo), lineNo, rec::addProject);
+                ScoreParser.parseList(requireLine(in, ++lineNo), lineNo, rec::addExercise);
+                ScoreParser.parseList(requireLine(in, ++lineNo), lineNo, rec::addLab);
+                ScoreParser.parseList(requireLine(in, ++lineNo), lineNo, rec::addReading);
+                rec.setParticipation(ScoreParser.parseScore(requireLine(in, ++lineNo), lineNo));
+                rec.setMidterm(ScoreParser.parseScore(requireLine(in, ++lineNo), lineNo));
+                rec.setFinalExam(ScoreParser.parseScore(requireLine(in, ++lineNo), lineNo));
+
+                if (Metrics.ENABLED) Metrics.PARSE_RECORD.record(r0);
+
+                sink.accept(rec);
+                count++;
+            }
+        }
+        if (Metrics.ENABLED) Metrics.INGEST_FILE.record(t0, a0);
+        return count;
+    }
+
+    /**
+     * Load one-row-per-student CSV.
+     *
+     * @param file   input file
+     * @param ledger destination ledger
+     * @return number of records inserted
+     * @throws IOException if the file cannot be read
+     */
+    public long loadCsv(Path file, GradeLedger ledger) throws IOException {
+        return loadCsv(file, ledger::insertRecord);
+    }
+
+    /**
+     * Load one-row-per-student CSV.
+     *
+     * @param file input file
+     * @param sink receives each record in file order
+     * @return number of records read
+     * @throws IOException if the file cannot be read
+     */
+    public long loadCsv(Path file, Consumer<StudentRecord> sink) throws IOException {
+        long count = 0;
+        long lineNo = 0;
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        long a0 = Metrics.ENABLED ? Metrics.INGEST_FILE.allocationMark() : 0L;
+        int[] bounds = new int[CSV_FIELDS * 2];
+        try (BufferedReader in = open(file)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                int fields = splitCsv(line, bounds, lineNo);
+                if (lineNo == 1 && field(line, bounds, 0).equalsIgnoreCase("name")) continue;
+                if (fields != CSV_FIELDS) {
+                    throw new IllegalArgumentException(
+                            "line " + lineNo + ": expected " + CSV_FIELDS + " fields, found " + fields);
+                }
+
+                long r0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+                StudentRecord rec = new StudentRecord(field(line, bounds, 0), field(line, bounds, 1), weights);
+                ScoreParser.parseList(line, bounds[4], bounds[5], lineNo, rec::addProject);
+                ScoreParser.parseList(line, bounds[6], bounds[7], lineNo, rec::addExercise);
+                ScoreParser.parseList(line, bounds[8], bounds[9], lineNo, rec::addLab);
+                ScoreParser.parseList(line, bounds[10], bounds[11], lineNo, rec::addReading);
+                rec.setParticipation(ScoreParser.parseScore(line, bounds[12], bounds[13], lineNo));
+                rec.setMidterm(ScoreParser.parseScore(line, bounds[14], bounds[15], lineNo));
+                rec.setFinalExam(ScoreParser.parseScore(line, bounds[16], bounds[17], lineNo));
+
+                if (Metrics.ENABLED) Metrics.PARSE_RECORD.record(r0);
+
+                sink.accept(rec);
+                count++;
+            }
+        }
+        if (Metrics.ENABLED) Metrics.INGEST_FILE.record(t0, a0);
+        return count;
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private static BufferedReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), READ_BUFFER_CHARS);
+    }
+
+    private static String requireLine(BufferedReader in, long lineNo) throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new IllegalArgumentException("line " + lineNo + ": file ends in the middle of a student");
+        }
+        return line;
+    }
+
+    /**
+     * Split one CSV row into start/end offsets; quotes are stripped from the bounds.
+     *
+     * @return number of fields found (may exceed the bounds capacity)
+     */
+    private static int splitCsv(String line, int[] bounds, long lineNo) {
+        int fields = 0;
+        int i = 0;
+        int n = line.length();
+        while (true) {
+            int start;
+            int end;
+            if (i < n && line.charAt(i) == '"') {
+                start = ++i;
+                while (true) {
+                    if (i >= n) throw new IllegalArgumentException("line " + lineNo + ": unterminated quote");
+                    if (line.charAt(i) == '"') {
+                        if (i + 1 < n && line.charAt(i + 1) == '"') i += 2;
+                        else break;
+                    } else {
+                        i++;
+                    }
+                }
+                end = i++;
+                while (i < n && line.charAt(i) != ',') i++;
+            } else {
+                start = i;
+                while (i < n && line.charAt(i) != ',') i++;
+                end = i;
+            }
+            if (fields < CSV_FIELDS) {
+                bounds[2 * fields] = start;
+                bounds[2 * fields + 1] = end;
+            }
+            fields++;
+            if (i >= n) return fields;
+            i++; // skip ','
+        }
+    }
+
+    private static String field(String line, int[] bounds, int index) {
+        String value = line.substring(bounds[2 * index], bounds[2 * index + 1]).trim();
+        return value.indexOf('"') >= 0 ? value.replace("\"\"", "\"") : value;
+    }
+}
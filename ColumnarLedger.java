@@ -0,0 +1,372 @@
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays grade ledger for one course.
+ * <p>
+ * Names and G#s live in one column each, exams in flat {@code double[]}
+ * columns, and each coursework bucket in one flat score array with a
+ * per-student offset table. Weights and drop-lowest counts are stored once
+ * for the whole course. Totals are computed by tight loops over these
+ * arrays and use the same arithmetic as {@code StudentRecord}, so they
+ * match it exactly. {@link #view(int)} builds a {@code StudentRecord} for a
+ * row on demand.
+ */
+public class ColumnarLedger {
+
+    private static final int INITIAL_ROWS = 16;
+
+    /* --------------------------- course ---------------------------- */
+    private final double[] weights;
+    private final int readingDrops;
+    private final int labDrops;
+    private final int exerciseDrops;
+    private final int projectDrops;
+    private LetterScale letterScale = LetterScale.DEFAULT;
+
+    /* --------------------------- columns --------------------------- */
+    private int size;
+    private String[] names = new String[INITIAL_ROWS];
+    private String[] gNumbers = new String[INITIAL_ROWS];
+    private double[] participation = new double[INITIAL_ROWS];
+    private double[] midterm = new double[INITIAL_ROWS];
+    private double[] finalExam = new double[INITIAL_ROWS];
+
+    private final ScoreColumn readings = new ScoreColumn();
+    private final ScoreColumn labs = new ScoreColumn();
+    private final ScoreColumn exercises = new ScoreColumn();
+    private final ScoreColumn projects = new ScoreColumn();
+
+    /**
+     * Totals for rows {@code [0, graded)}; rows are immutable once added.
+     */
+    private double[] totals = new double[INITIAL_ROWS];
+    private int graded;
+
+    /**
+     * Build an empty course ledger with the default drop policy
+     * (lowest 15 readings, nothing else).
+     *
+     * @param categoryWeight weights in {@code StudentRecord} order
+     */
+    public ColumnarLedger(double[] categoryWeight) {
+        this(categoryWeight, 15, 0, 0, 0);
+    }
+
+    /**
+     * Build an empty course ledger.
+     *
+     * @param categoryWeight weights in {@code StudentRecord} order
+     * @param readingDrops   lowest readings dropped per student
+     * @param labDrops       lowest labs dropped per student
+     * @param exerciseDrops  lowest exercises dropped per student
+     * @param projectDrops   lowest projects dropped per student
+     */
+    public ColumnarLedger(double[] categoryWeight, int readingDrops, int labDrops,
+                          int exerciseDrops, int projectDrops) {
+        this.weights = Arrays.copyOf(categoryWeight, StudentRecord.WEIGHT_COUNT);
+        this.readingDrops = readingDrops;
+        this.labDrops = labDrops;
+        this.exerciseDrops = exerciseDrops;
+        this.projectDrops = projectDrops;
+    }
+
+    /**
+     * Copy every record of a ledger into columns under the given weights.
+     * Each record's own weights and drop counts are ignored.
+     *
+     * @param ledger         source ledger
+     * @param categoryWeight course weights
+     * @return columnar copy
+     */
+    public static ColumnarLedger of(GradeLedger ledger, double[] categoryWeight) {
+        ColumnarLedger columns = new ColumnarLedger(categoryWeight);
+        for (StudentRecord rec : ledger.getRecords()) columns.add(rec);
+        return columns;
+    }
+
+    /* ========================== adders ========================== */
+
+    /**
+     * Append one student copied from a record.
+     * The record's own weights and drop counts are ignored.
+     *
+     * @param rec source record
+     */
+    public void add(StudentRecord rec) {
+        int row = newRow(rec.getStudentName(), rec.getGNumber(),
+                rec.getParticipation(), rec.getMidterm(), rec.getFinalExam());
+        readings.append(rec.readingBucket(), row);
+        labs.append(rec.labBucket(), row);
+        exercises.append(rec.exerciseBucket(), row);
+        projects.append(rec.projectBucket(), row);
+    }
+
+    /**
+     * Append one student from raw scores.
+     *
+     * @param studentName     name of the student
+     * @param gNumber         institutional id (e.g., G#)
+     * @param projectScores   project scores
+     * @param exerciseScores  exercise scores
+     * @param labScores       lab scores
+     * @param readingScores   reading scores
+     * @param participationScore participation score
+     * @param midtermScore    midterm score
+     * @param finalExamScore  final exam score
+     */
+    public void add(String studentName, String gNumber, double[] projectScores, double[] exerciseScores,
+                    double[] labScores, double[] readingScores,
+                    double participationScore, double midtermScore, double finalExamScore) {
+        int row = newRow(studentName, gNumber, participationScore, midtermScore, finalExamScore);
+        projects.append(projectScores, row);
+        exercises.append(exerciseScores, row);
+        labs.append(labScores, row);
+        readings.append(readingScores, row);
+    }
+
+    /* ========================== queries ========================= */
+
+    /**
+     * Number of students.
+     *
+     * @return row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Student name for a row.
+     *
+     * @param row 0-based row
+     * @return name
+     */
+    public String studentName(int row) {
+        checkRow(row);
+        return names[row];
+    }
+
+    /**
+     * Student G# for a row.
+     *
+     * @param row 0-based row
+     * @return id string
+     */
+    public String gNumber(int row) {
+        checkRow(row);
+        return gNumbers[row];
+    }
+
+    /**
+     * Weighted total for a row.
+     *
+     * @param row 0-based row
+     * @return overall numeric score
+     */
+    public double totalScore(int row) {
+        checkRow(row);
+        gradeAll();
+        return totals[row];
+    }
+
+    /**
+     * Letter grade for a row.
+     *
+     * @param row 0-based row
+     * @return letter grade
+     */
+    public String letterGrade(int row) {
+        return letterScale.letter(totalScore(row), finalExam[row] >= 60.0);
+    }
+
+    /**
+     * Letter cutoffs for the whole course.
+     *
+     * @return letter scale
+     */
+    public LetterScale getLetterScale() {
+        return letterScale;
+    }
+
+    /**
+     * Set the letter cutoffs for the whole course, e.g. a curved scale.
+     *
+     * @param scale letter scale
+     */
+    public void setLetterScale(LetterScale scale) {
+        this.letterScale = scale;
+    }
+
+    /**
+     * Mean of all totals.
+     *
+     * @return average total, or 0.0 if empty
+     */
+    public double classAverage() {
+        if (size == 0) return 0.0;
+        gradeAll();
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) sum += totals[i];
+        return sum / size;
+    }
+
+    /**
+     * Row with the greatest total; the earliest row wins a tie.
+     *
+     * @return row index, or -1 if empty
+     */
+    public int highestRow() {
+        gradeAll();
+        int best = -1;
+        double bestTotal = 0.0;
+        for (int i = 0; i < size; i++) {
+            if (best < 0 || totals[i] > bestTotal) {
+                best = i;
+                bestTotal = totals[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Row with the smallest total; the earliest row wins a tie.
+     *
+     * @return row index, or -1 if empty
+     */
+    public int lowestRow() {
+        gradeAll();
+        int worst = -1;
+        double worstTotal = 0.0;
+        for (int i = 0; i < size; i++) {
+            if (worst < 0 || totals[i] < worstTotal) {
+                worst = i;
+                worstTotal = totals[i];
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Materialize a row as a standalone {@code StudentRecord} carrying the
+     * course weights, drop counts and letter scale. Changes to it do not
+     * write back.
+     *
+     * @param row 0-based row
+     * @return new record equal to the row
+     */
+    public StudentRecord view(int row) {
+        checkRow(row);
+        StudentRecord rec = new StudentRecord(names[row], gNumbers[row], weights);
+        rec.setReadingDrops(readingDrops);
+        rec.setLabDrops(labDrops);
+        rec.setExerciseDrops(exerciseDrops);
+        rec.setProjectDrops(projectDrops);
+        rec.setLetterScale(letterScale);
+        rec.addProjects(projects.row(row));
+        rec.addExercises(exercises.row(row));
+        rec.addLabs(labs.row(row));
+        rec.addReadings(readings.row(row));
+        rec.setParticipation(participation[row]);
+        rec.setMidterm(midterm[row]);
+        rec.setFinalExam(finalExam[row]);
+        return rec;
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private int newRow(String studentName, String gNumber, double participationScore,
+                       double midtermScore, double finalExamScore) {
+        if (size == names.length) {
+            int capacity = size + (size >> 1);
+            names = Arrays.copyOf(names, capacity);
+            gNumbers = Arrays.copyOf(gNumbers, capacity);
+            participation = Arrays.copyOf(participation, capacity);
+            midterm = Arrays.copyOf(midterm, capacity);
+            finalExam = Arrays.copyOf(finalExam, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+        }
+        names[size] = studentName;
+        gNumbers[size] = gNumber;
+        participation[size] = participationScore;
+        midterm[size] = midtermScore;
+        finalExam[size] = finalExamScore;
+        return size++;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Compute totals for rows added since the last scan.
+     */
+    private void gradeAll() {
+        if (graded == size) return;
+        ScoreBucket scratch = new ScoreBucket();
+        for (int i = graded; i < size; i++) {
+            totals[i] = StudentRecord.weightedTotal(participation[i],
+                    readings.mean(i, readingDrops, scratch),
+                    labs.mean(i, labDrops, scratch),
+                    exercises.mean(i, exerciseDrops, scratch),
+                    projects.mean(i, projectDrops, scratch),
+                    midterm[i], finalExam[i], weights);
+        }
+        graded = size;
+    }
+
+    /**
+     * One bucket for every student: all scores back to back, with
+     * {@code offsets[row]..offsets[row + 1]} marking each student's slice.
+     */
+    private static final class ScoreColumn {
+        private double[] values = new double[INITIAL_ROWS * 4];
+        private int[] offsets = new int[INITIAL_ROWS + 1];
+
+        void append(ScoreBucket bucket, int row) {
+            int n = bucket.size();
+            int start = reserve(row, n);
+            for (int i = 0; i < n; i++) values[start + i] = bucket.get(i);
+        }
+
+        void append(double[] scores, int row) {
+            int start = reserve(row, scores.length);
+            System.arraycopy(scores, 0, values, start, scores.length);
+        }
+
+        double[] row(int row) {
+            return Arrays.copyOfRange(values, offsets[row], offsets[row + 1]);
+        }
+
+        /**
+         * Mean after dropping the lowest {@code drops}; 100 if none remain.
+         * Matches {@code StudentRecord}'s bucket means bit for bit.
+         */
+        double mean(int row, int drops, ScoreBucket scratch) {
+            int from = offsets[row];
+            int to = offsets[row + 1];
+            if (drops == 0) {
+                if (from == to) return 100.0;
+                double sum = 0.0;
+                for (int i = from; i < to; i++) sum += values[i];
+                return sum / (to - from);
+            }
+            if (scratch.getDropLowest() != drops) scratch.setDropLowest(drops);
+            scratch.clear();
+            scratch.addAll(values, from, to);
+            int kept = scratch.keptCount();
+            return kept == 0 ? 100.0 : scratch.keptSum() / kept;
+        }
+
+        private int reserve(int row, int n) {
+            if (row + 2 > offsets.length) offsets = Arrays.copyOf(offsets, (row + 2) + ((row + 2) >> 1));
+            int start = offsets[row];
+            if (start + n > values.length) {
+                values = Arrays.copyOf(values, Math.max(start + n, values.length + (values.length >> 1)));
+            }
+            offsets[row + 1] = start + n;
+            return start;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe grade ledger for many concurrent grade-entry threads.
+ * <p>
+ * Records are keyed by G# in a {@code ConcurrentHashMap}, so inserts from
+ * different threads never contend on one lock. A record is changed only
+ * through {@link #update(String, Consumer)}, which locks just that record
+ * and then publishes an immutable {@link Standing} (name, G#, total,
+ * letter) for it.
+ * <p>
+ * Stats never lock records. They read the published standings into a
+ * {@link Snapshot}. {@link #snapshot()} never sorts on the caller's
+ * thread: each write starts a rebuild on the common pool unless one is
+ * already queued, and readers get the last published snapshot meanwhile,
+ * so a burst of writes costs a few O(N log N) rebuilds off the read path
+ * rather than one per reader.
+ * {@link #currentSnapshot()} waits for a snapshot that includes every
+ * write made before the call. Each standing in a snapshot is consistent:
+ * a record is seen wholly before or wholly after any update, never
+ * half-way.
+ */
+public class ConcurrentGradeLedger {
+
+    private static final Comparator<Entry> BY_SEQ = Comparator.comparingLong(e -> e.seq);
+
+    private final ConcurrentHashMap<String, Entry> byGNumber = new ConcurrentHashMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    /** Bumped after every published write; snapshots remember the value they saw. */
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot cached = new Snapshot(new Standing[0], 0);
+    private final Object rebuildLock = new Object();
+
+    /** True while a background rebuild is queued or running. */
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Build an empty ledger.
+     */
+    public ConcurrentGradeLedger() {
+    }
+
+    /* ========================== writers ========================== */
+
+    /**
+     * Add a record, or replace the record with the same G#.
+     * The ledger owns the record afterwards; change it only through
+     * {@link #update(String, Consumer)}.
+     *
+     * @param entry grades for one student; G# must not be null
+     */
+    public void insertRecord(StudentRecord entry) {
+        String gNumber = entry.getGNumber();
+        if (gNumber == null) throw new IllegalArgumentException("G# is required");
+        Standing standing;
+        synchronized (entry) {
+            standing = new Standing(entry);
+        }
+        // a replacement keeps the old record's place in insertion order
+        byGNumber.compute(gNumber, (k, old) ->
+                new Entry(entry, old == null ? nextSeq.getAndIncrement() : old.seq, standing));
+        version.incrementAndGet();
+        scheduleRebuild();
+    }
+
+    /**
+     * Apply a change to one record while holding only that record's lock,
+     * then publish its new standing.
+     *
+     * @param gNumber student to change
+     * @param change  mutation, e.g. {@code r -> r.addLab(95)}; must not change the G#
+     * @return {@code false} if no record has that G#
+     */
+    public boolean update(String gNumber, Consumer<StudentRecord> change) {
+        Entry e = byGNumber.get(gNumber);
+        if (e == null) return false;
+        synchronized (e.record) {
+            change.accept(e.record);
+            e.standing = new Standing(e.record);
+        }
+        version.incrementAndGet();
+        scheduleRebuild();
+        return true;
+    }
+
+    /* ========================== readers ========================== */
+
+    /**
+     * Number of records.
+     *
+     * @return record count
+     */
+    public int size() {
+        return byGNumber.size();
+    }
+
+    /**
+     * Latest published standing of one student.
+     *
+     * @param gNumber student to look up
+     * @return standing, or {@code null} if absent
+     */
+    public Standing standing(String gNumber) {
+        Entry e = byGNumber.get(gNumber);
+        return e == null ? null : e.standing;
+    }
+
+    /**
+     * Latest built view for stats, without waiting. Writes rebuild it in
+     * the background, so it may miss writes whose rebuild has not yet
+     * finished.
+     *
+     * @return most recent snapshot
+     */
+    public Snapshot snapshot() {
+        Snapshot s = cached;
+        if (s.version != version.get()) scheduleRebuild();
+        return s;
+    }
+
+    /**
+     * View for stats that includes every write made before this call,
+     * rebuilding on the caller's thread if the latest one is stale.
+     *
+     * @return up-to-date snapshot
+     */
+    public Snapshot currentSnapshot() {
+        Snapshot s = cached;
+        return s.version == version.get() ? s : rebuild();
+    }
+
+    /**
+     * Highest-scoring student as of this call. The live record is
+     * not exposed, since other threads may be updating it.
+     *
+     * @return published standing with the greatest total, or {@code null} if none
+     */
+    public Standing highestRecord() {
+        return currentSnapshot().highest();
+    }
+
+    /**
+     * Lowest-scoring student as of this call.
+     *
+     * @return published standing with the smallest total, or {@code null} if none
+     */
+    public Standing lowestRecord() {
+        return currentSnapshot().lowest();
+    }
+
+    /**
+     * Median student as of this call.
+     *
+     * @return published median standing, or {@code null} if empty
+     */
+    public Standing medianRecord() {
+        return currentSnapshot().median();
+    }
+
+    /**
+     * Mean of all totals as of this call.
+     *
+     * @return average total, or 0.0 if empty
+     */
+    public double classAverage() {
+        return currentSnapshot().classAverage();
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Queue a background rebuild if the cached snapshot is stale and none
+     * is queued already. A finished rebuild calls this again, so writes
+     * made while it ran are picked up by the next one.
+     */
+    private void scheduleRebuild() {
+        if (cached.version != version.get() && rebuilding.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    rebuilding.set(false);
+                }
+                scheduleRebuild();
+            });
+        }
+    }
+
+    /**
+     * Build and publish a snapshot of the current standings unless the
+     * cached one is already current; concurrent callers share one build.
+     */
+    private Snapshot rebuild() {
+        synchronized (rebuildLock) {
+            Snapshot s = cached;
+            long v = version.get();
+            if (s.version == v) return s;
+
+            Entry[] entries = byGNumber.values().toArray(new Entry[0]);
+            Arrays.sort(entries, BY_SEQ);
+            Standing[] standings = new Standing[entries.length];
+            for (int i = 0; i < entries.length; i++) standings[i] = entries[i].standing;
+            s = new Snapshot(standings, v);
+            cached = s;
+            return s;
+        }
+    }
+
+    /* ------------------------- types ------------------------- */
+
+    /**
+     * Immutable grade summary of one record at one point in time.
+     */
+    public static final class Standing {
+        private final String name;
+        private final String gNumber;
+        private final double total;
+        private final String letter;
+
+        Standing(StudentRecord rec) {
+            this.name = rec.getStudentName();
+            this.gNumber = rec.getGNumber();
+            this.total = rec.totalScore();
+            this.letter = rec.letterGrade();
+        }
+
+        /** @return student name */
+        public String getStudentName() {
+            return name;
+        }
+
+        /** @return student G# */
+        public String getGNumber() {
+            return gNumber;
+        }
+
+        /** @return weighted total */
+        public double totalScore() {
+            return total;
+        }
+
+        /** @return letter grade */
+        public String letterGrade() {
+            return letter;
+        }
+    }
+
+    /**
+     * Stats over one consistent set of standings. Ties on total are broken
+     * by insertion order, as in {@code GradeLedger}.
+     */
+    public static final class Snapshot {
+        private final long version;
+
+        /** Standings in insertion order. */
+        private final Standing[] standings;
+
+        /** Indices into {@code standings} ordered by (total, insertion). */
+        private final int[] byTotal;
+        private final double sum;
+
+        Snapshot(Standing[] standings, long version) {
+            this.version = version;
+            this.standings = standings;
+            double s = 0.0;
+            double[] totals = new double[standings.length];
+            int[] order = new int[standings.length];
+            for (int i = 0; i < standings.length; i++) {
+                totals[i] = standings[i].total;
+                s += totals[i];
+                order[i] = i;
+            }
+            this.sum = s;
+            sortByTotal(order, new int[order.length], totals, 0, order.length);
+            this.byTotal = order;
+        }
+
+        /**
+         * Stable merge sort of indices by total, without boxing; equal
+         * totals keep insertion order.
+         */
+        private static void sortByTotal(int[] a, int[] tmp, double[] totals, int lo, int hi) {
+            if (hi - lo < 2) return;
+            int mid = (lo + hi) >>> 1;
+            sortByTotal(a, tmp, totals, lo, mid);
+            sortByTotal(a, tmp, totals, mid, hi);
+            if (Double.compare(totals[a[mid - 1]], totals[a[mid]]) <= 0) return;
+            System.arraycopy(a, lo, tmp, lo, hi - lo);
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (j >= hi || (i < mid && Double.compare(totals[tmp[i]], totals[tmp[j]]) <= 0)) a[k] = tmp[i++];
+                else a[k] = tmp[j++];
+            }
+        }
+
+        /** @return number of records */
+        public int size() {
+            return standings.length;
+        }
+
+        /** @return mean total, or 0.0 if empty */
+        public double classAverage() {
+            return standings.length == 0 ? 0.0 : sum / standings.length;
+        }
+
+        /**
+         * Standing at a 0-based rank by total, ascending.
+         *
+         * @param k rank
+         * @return standing
+         */
+        public Standing atRank(int k) {
+            return standings[byTotal[k]];
+        }
+
+        /** @return lowest standing, or {@code null} if empty */
+        public Standing lowest() {
+            return standings.length == 0 ? null : atRank(0);
+        }
+
+        /** @return highest standing (earliest inserted on ties), or {@code null} if empty */
+        public Standing highest() {
+            int i = highestRank();
+            return i < 0 ? null : atRank(i);
+        }
+
+        /** @return median standing, or {@code null} if empty */
+        public Standing median() {
+            return standings.length == 0 ? null : atRank(standings.length / 2);
+        }
+
+        private int highestRank() {
+            int i = standings.length - 1;
+            if (i < 0) return -1;
+            double top = atRank(i).total;
+            while (i > 0 && Double.compare(atRank(i - 1).total, top) == 0) i--;
+            return i;
+        }
+    }
+
+    /**
+     * One record plus its latest published standing.
+     */
+    private static final class Entry {
+        final StudentRecord record;
+        final long seq;
+        volatile Standing standing;
+
+        Entry(StudentRecord record, long seq, Standing standing) {
+            this.record = record;
+            this.seq = seq;
+            this.standing = standing;
+        }
+    }
+}
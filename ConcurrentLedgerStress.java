@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multi-threaded stress run for {@code ConcurrentGradeLedger}.
+ * <p>
+ * Usage: {@code java ConcurrentLedgerStress [threads] [students per thread] [updates per thread]},
+ * default 8, 1000 and 20000. Writer threads insert their own students and
+ * then add labs to them, all threads also hammer one shared student, and a
+ * reader thread queries stats throughout. At the end the totals, average,
+ * highest, lowest and median are checked against a {@code GradeLedger}
+ * built single-threaded with the same grades. Exits 1 on any mismatch.
+ */
+public class ConcurrentLedgerStress {
+
+    private static final long SEED = 42L;
+    private static final String SHARED = SyntheticLedger.gNumber(0);
+
+    private static volatile boolean done;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        ConcurrentGradeLedger ledger = new ConcurrentGradeLedger();
+        ledger.insertRecord(new StudentRecord("Shared", SHARED, SyntheticLedger.WEIGHTS));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        Future<Long> reader = pool.submit(() -> {
+            long reads = 0;
+            while (!done) {
+                ConcurrentGradeLedger.Snapshot s = ledger.snapshot();
+                if (s.size() > 0 && s.lowest().totalScore() > s.highest().totalScore()) {
+                    throw new IllegalStateException("snapshot out of order");
+                }
+                reads++;
+            }
+            return reads;
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> write(ledger, thread, students, updates)));
+        }
+        long start = System.nanoTime();
+        for (Future<?> f : writers) f.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        done = true;
+        long reads = reader.get();
+        pool.shutdown();
+
+        GradeLedger expected = expected(threads, students, updates);
+        int failures = compare(ledger, expected);
+        System.out.printf("%d threads, %d records, %.0f writes/s, %d snapshot reads%n",
+                threads, ledger.size(), threads * (double) (students + 2 * updates) / seconds, reads);
+        if (failures > 0) {
+            System.out.println(failures + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /* ------------------------- workload ------------------------- */
+
+    private static void write(ConcurrentGradeLedger ledger, int thread, int students, int updates) {
+        SplittableRandom rnd = new SplittableRandom(SEED + thread);
+        for (int i = 0; i < students; i++) {
+            ledger.insertRecord(SyntheticLedger.student(rnd, id(thread, students, i)));
+        }
+        for (int i = 0; i < updates; i++) {
+            String g = SyntheticLedger.gNumber(id(thread, students, i % students));
+            double lab = labScore(thread, i);
+            ledger.update(g, r -> r.addLab(lab));
+            ledger.update(SHARED, r -> r.addReading(lab));
+        }
+    }
+
+    /**
+     * The same grades, entered by one thread in a fixed order.
+     */
+    private static GradeLedger expected(int threads, int students, int updates) {
+        GradeLedger ledger = new GradeLedger();
+        StudentRecord shared = new StudentRecord("Shared", SHARED, SyntheticLedger.WEIGHTS);
+        ledger.insertRecord(shared);
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom rnd = new SplittableRandom(SEED + t);
+            StudentRecord[] mine = new StudentRecord[students];
+            for (int i = 0; i < students; i++) {
+                mine[i] = SyntheticLedger.student(rnd, id(t, students, i));
+                ledger.insertRecord(mine[i]);
+            }
+            for (int i = 0; i < updates; i++) {
+                mine[i % students].addLab(labScore(t, i));
+                shared.addReading(labScore(t, i));
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * Count aggregates that differ. Readings on the shared student arrive
+     * in a different order, but dropped readings are summed in sorted
+     * order, so every total must match exactly.
+     */
+    private static int compare(ConcurrentGradeLedger ledger, GradeLedger expected) {
+        int failures = 0;
+        if (ledger.size() != expected.size()) failures++;
+        for (StudentRecord r : expected.getRecords()) {
+            ConcurrentGradeLedger.Standing s = ledger.standing(r.getGNumber());
+            if (s == null || Double.compare(s.totalScore(), r.totalScore()) != 0) failures++;
+        }
+        if (Math.abs(ledger.classAverage() - expected.classAverage()) > 1e-9) failures++;
+        if (!sameTotal(ledger.highestRecord(), expected.highestRecord())) failures++;
+        if (!sameTotal(ledger.lowestRecord(), expected.lowestRecord())) failures++;
+        if (!sameTotal(ledger.medianRecord(), expected.medianRecord())) failures++;
+        return failures;
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private static boolean sameTotal(ConcurrentGradeLedger.Standing a, StudentRecord b) {
+        return Math.abs(a.totalScore() - b.totalScore()) <= 1e-9;
+    }
+
+    private static long id(int thread, int students, int i) {
+        return 1 + (long) thread * students + i;
+    }
+
+    private static double labScore(int thread, int i) {
+        return (thread * 31 + i * 7) % 101;
+    }
+}
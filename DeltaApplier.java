@@ -0,0 +1,347 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Applies a file of single-score changes to an existing ledger, so a
+ * regrade does not mean re-entering the whole student.
+ * <p>
+ * One change per line, comma-separated:
+ * <pre>
+ * G#, bucket, op, value[, position]
+ * G01234567, lab, add, 95
+ * G01234567, final, set, 88
+ * G01234567, reading, replace, 100, 3
+ * </pre>
+ * Buckets are {@code reading}, {@code lab}, {@code exercise},
+ * {@code project} (lists) and {@code participation}, {@code midterm},
+ * {@code final} (single scores); plurals and any letter case are
+ * accepted. {@code add} appends to a list, {@code set} sets a single
+ * score, and {@code replace} overwrites the list score at a 1-based
+ * position in entry order. Blank lines and lines starting with {@code #}
+ * are skipped.
+ * <p>
+ * Each change goes through the record's own mutator, so the ledger
+ * re-ranks only the records touched, and an attached
+ * {@code GradeJournal} logs every change. A line that cannot be applied
+ * (unknown G#, bad bucket, op or number, a score outside 0 to 100,
+ * position out of range) is
+ * rejected and counted; the rest of the file still applies.
+ */
+public class DeltaApplier {
+
+    private static final int READ_BUFFER_CHARS = 1 << 16;
+
+    /** Rejection messages kept per run; later ones are only counted. */
+    private static final int MAX_MESSAGES = 20;
+
+    private static final int READING = 0;
+    private static final int LAB = 1;
+    private static final int EXERCISE = 2;
+    private static final int PROJECT = 3;
+    private static final int PARTICIPATION = 4;
+    private static final int MIDTERM = 5;
+    private static final int FINAL = 6;
+
+    private static final String[] BUCKETS = {
+        "reading", "lab", "exercise", "project", "participation", "midterm", "final"
+    };
+
+    private static final int ADD = 0;
+    private static final int SET = 1;
+    private static final int REPLACE = 2;
+
+    private static final String[] OPS = {"add", "set", "replace"};
+
+    private final GradeLedger ledger;
+
+    private final Change change = new Change();
+
+    /**
+     * Build an applier for one ledger.
+     *
+     * @param ledger ledger whose records the changes target
+     */
+    public DeltaApplier(GradeLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Apply every change in a file.
+     *
+     * @param file delta file
+     * @return counts and timing
+     * @throws IOException if the file cannot be read
+     */
+    public Result apply(Path file) throws IOException {
+        try (BufferedReader in = new BufferedReader(
+                Files.newBufferedReader(file, StandardCharsets.UTF_8), READ_BUFFER_CHARS)) {
+            return apply(in);
+        }
+    }
+
+    /**
+     * Apply every change read from a stream.
+     *
+     * @param source delta lines
+     * @return counts and timing
+     * @throws IOException if the stream cannot be read
+     */
+    public Result apply(Reader source) throws IOException {
+        BufferedReader in = source instanceof BufferedReader
+                ? (BufferedReader) source
+                : new BufferedReader(source, READ_BUFFER_CHARS);
+        Result result = new Result();
+        long start = System.nanoTime();
+        long lineNo = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            if (ScoreParser.isBlankOrComment(line)) continue;
+            long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+            String error = applyLine(line, lineNo);
+            if (Metrics.ENABLED) {
+                Metrics.DELTA_CHANGE.record(t0);
+                if (error != null) Metrics.DELTAS_REJECTED.increment();
+            }
+            if (error == null) result.applied++;
+            else result.reject("line " + lineNo + ": " + error);
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /* ------------------------- types ------------------------- */
+
+    /**
+     * Outcome of one run.
+     */
+    public static final class Result {
+        private long applied;
+        private long rejected;
+        private long nanos;
+        private final List<String> messages = new ArrayList<>();
+
+        Result() {
+        }
+
+        /** @return changes applied */
+        public long applied() {
+            return applied;
+        }
+
+        /** @return lines rejected */
+        public long rejected() {
+            return rejected;
+        }
+
+        /** @return wall time of the run in seconds */
+        public double seconds() {
+            return nanos / 1e9;
+        }
+
+        /**
+         * Wall time scaled to one million changes, applied or rejected.
+         *
+         * @return seconds per million changes, or 0.0 if there were none
+         */
+        public double secondsPerMillion() {
+            long total = applied + rejected;
+            return total == 0 ? 0.0 : nanos / 1e3 / total;
+        }
+
+        /** @return the first rejection messages, in file order */
+        public List<String> rejections() {
+            return Collections.unmodifiableList(messages);
+        }
+
+        private void reject(String message) {
+            rejected++;
+            if (messages.size() < MAX_MESSAGES) messages.add(message);
+        }
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Apply one line.
+     *
+     * @return {@code null} if applied, else why it was rejected
+     */
+    private String applyLine(String line, long lineNo) {
+        String error = change.parse(line, lineNo);
+        if (error != null) return error;
+        StudentRecord rec = ledger.findRecord(change.gNumber());
+        if (rec == null) return "no student with G# " + change.gNumber();
+        return change.applyTo(rec);
+    }
+
+    /**
+     * One parsed delta line. Reusable: each {@link #parse} overwrites it.
+     * Not thread-safe; use one per thread.
+     */
+    static final class Change {
+        private final int[] bounds = new int[10];
+        private String gNumber;
+        private int bucket;
+        private int op;
+        private double value;
+        private int position;
+
+        /**
+         * Parse a line such as {@code G01234567, lab, add, 95}.
+         *
+         * @param line   delta line, not blank or a comment
+         * @param lineNo 1-based line number for score errors
+         * @return {@code null} if valid, else why it was rejected
+         */
+        String parse(String line, long lineNo) {
+            int fields = 0;
+            int start = 0;
+            for (int i = 0; i <= line.length(); i++) {
+                if (i == line.length() || line.charAt(i) == ',') {
+                    if (fields == 5) return "expected 4 or 5 fields";
+                    bounds[2 * fields] = start;
+                    bounds[2 * fields + 1] = i;
+                    fields++;
+                    start = i + 1;
+                }
+            }
+            if (fields < 4) return "expected 4 or 5 fields, found " + fields;
+
+            bucket = match(line, bounds[2], bounds[3], BUCKETS, true);
+            if (bucket < 0) return "unknown bucket '" + field(line, 1) + "'";
+            op = match(line, bounds[4], bounds[5], OPS, false);
+            if (op < 0) return "unknown op '" + field(line, 2) + "'";
+
+            boolean list = bucket <= PROJECT;
+            if (op == SET && list) return "use add or replace for " + BUCKETS[bucket] + " scores";
+            if (op != SET && !list) return "use set for " + BUCKETS[bucket];
+            if ((op == REPLACE) != (fields == 5)) {
+                return op == REPLACE ? "replace needs a position" : "only replace takes a position";
+            }
+
+            position = 0;
+            try {
+                value = ScoreParser.parseBoundedScore(line, bounds[6], bounds[7], lineNo);
+                if (op == REPLACE) position = parsePosition(line, bounds[8], bounds[9]);
+            } catch (ScoreFormatException e) {
+                // the caller reports the line itself
+                return "column " + e.getColumn() + ": " + e.getReason();
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+            gNumber = field(line, 0);
+            return null;
+        }
+
+        /** @return G# of the last parsed line */
+        String gNumber() {
+            return gNumber;
+        }
+
+        /**
+         * Apply the last parsed change to its student's record.
+         *
+         * @param rec record with {@link #gNumber()}
+         * @return {@code null} if applied, else why it was rejected
+         */
+        String applyTo(StudentRecord rec) {
+            if (op == REPLACE) {
+                int size = bucket(rec, bucket).size();
+                if (position > size) {
+                    return "position " + position + " is past the " + size + " " + BUCKETS[bucket] + " scores";
+                }
+            }
+            apply(rec, bucket, op, value, position - 1);
+            return null;
+        }
+
+        private String field(String line, int index) {
+            return line.substring(bounds[2 * index], bounds[2 * index + 1]).trim();
+        }
+    }
+
+    private static void apply(StudentRecord rec, int bucket, int op, double value, int index) {
+        switch (bucket) {
+            case READING:
+                if (op == ADD) rec.addReading(value);
+                else rec.replaceReading(index, value);
+                break;
+            case LAB:
+                if (op == ADD) rec.addLab(value);
+                else rec.replaceLab(index, value);
+                break;
+            case EXERCISE:
+                if (op == ADD) rec.addExercise(value);
+                else rec.replaceExercise(index, value);
+                break;
+            case PROJECT:
+                if (op == ADD) rec.addProject(value);
+                else rec.replaceProject(index, value);
+                break;
+            case PARTICIPATION:
+                rec.setParticipation(value);
+                break;
+            case MIDTERM:
+                rec.setMidterm(value);
+                break;
+            default:
+                rec.setFinalExam(value);
+                break;
+        }
+    }
+
+    private static ScoreBucket bucket(StudentRecord rec, int bucket) {
+        switch (bucket) {
+            case READING:  return rec.readingBucket();
+            case LAB:      return rec.labBucket();
+            case EXERCISE: return rec.exerciseBucket();
+            default:       return rec.projectBucket();
+        }
+    }
+
+    /**
+     * Index of the name in {@code text[from, to)}, ignoring case and
+     * surrounding spaces; a trailing 's' is allowed if {@code plural}.
+     *
+     * @return index into {@code names}, or -1
+     */
+    private static int match(String text, int from, int to, String[] names, boolean plural) {
+        while (from < to && text.charAt(from) <= ' ') from++;
+        while (to > from && text.charAt(to - 1) <= ' ') to--;
+        int length = to - from;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if ((length == name.length() || (plural && length == name.length() + 1
+                    && Character.toLowerCase(text.charAt(to - 1)) == 's'))
+                    && text.regionMatches(true, from, name, 0, name.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a 1-based position.
+     */
+    private static int parsePosition(String text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') from++;
+        while (to > from && text.charAt(to - 1) <= ' ') to--;
+        if (from == to || to - from > 9) throw new IllegalArgumentException("bad position '" + text.substring(from, to) + "'");
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("bad position '" + text.substring(from, to) + "'");
+            value = value * 10 + (c - '0');
+        }
+        if (value == 0) throw new IllegalArgumentException("positions start at 1");
+        return value;
+    }
+}
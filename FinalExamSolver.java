@@ -0,0 +1,341 @@
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers "what do I need on the final?" for every letter at once.
+ * <p>
+ * With everything but the final fixed, a student's total is a piecewise
+ * linear function of the final score: while the final is at or below
+ * the midterm, only the final's own weight applies; above it the final
+ * also takes the midterm's weight. The solver reads each record's
+ * cached category means, midterm, weights and letter scale once, solves
+ * that line for each letter floor, and then settles the answer to the
+ * exact smallest {@code double} whose total, computed the same way as
+ * {@code StudentRecord.totalScore()}, reaches the floor. No record is
+ * modified, and no candidate final is tried by regrading a record.
+ * <p>
+ * Any passing letter also needs a final of at least 60, so no answer is
+ * below 60. A letter is unreachable ({@code NaN}) if even the highest
+ * allowed final falls short of its floor, or if reaching the floor would
+ * push the total past the scale's ceiling. Weights are assumed
+ * non-negative, so the total never falls as the final rises.
+ */
+public class FinalExamSolver {
+
+    /** Final score a passing letter requires, as in {@code StudentRecord.finalIsPassing()}. */
+    public static final double PASSING_FINAL = 60.0;
+
+    /**
+     * Records per fork/join leaf.
+     */
+    private static final int LEAF_SIZE = 4096;
+
+    /**
+     * Ulp steps tried after the closed form before falling back to
+     * bisection; rounding leaves the closed form a few ulps off at most.
+     */
+    private static final int MAX_SETTLE_STEPS = 16;
+
+    private final double maxFinal;
+
+    /**
+     * Build a solver for finals scored out of 100.
+     */
+    public FinalExamSolver() {
+        this(100.0);
+    }
+
+    /**
+     * Build a solver.
+     *
+     * @param maxFinal highest final score a student can earn, e.g. above
+     *                 100 with extra credit; at least {@link #PASSING_FINAL}
+     */
+    public FinalExamSolver(double maxFinal) {
+        if (!(maxFinal >= PASSING_FINAL) || Double.isInfinite(maxFinal)) {
+            throw new IllegalArgumentException("Highest final must be a number >= " + PASSING_FINAL + ": " + maxFinal);
+        }
+        this.maxFinal = maxFinal;
+    }
+
+    /**
+     * Highest final score considered.
+     *
+     * @return the cap given at construction
+     */
+    public double maxFinal() {
+        return maxFinal;
+    }
+
+    /* ========================== one student ========================== */
+
+    /**
+     * Smallest final that earns each passing letter or better.
+     *
+     * @param rec student; only read
+     * @return {@link LetterScale#FLOOR_COUNT} finals in
+     *         {@code LedgerStats.LETTERS} order (A+ first, D last), {@code NaN}
+     *         where the letter is out of reach
+     */
+    public double[] neededFinals(StudentRecord rec) {
+        double[] out = new double[LetterScale.FLOOR_COUNT];
+        solve(rec, out, 0);
+        return out;
+    }
+
+    /**
+     * Smallest final that earns a letter or better.
+     *
+     * @param rec    student; only read
+     * @param letter a passing letter, D through A+
+     * @return the final needed, or {@code NaN} if out of reach
+     */
+    public double neededFinal(StudentRecord rec, String letter) {
+        return neededFinals(rec)[letterIndex(letter)];
+    }
+
+    /* ========================== batches ========================== */
+
+    /**
+     * Solve every record in a ledger with fork/join on the common pool.
+     * Records must not be mutated while this runs.
+     *
+     * @param ledger ledger to solve
+     * @return needed finals per student, in ledger order
+     */
+    public Result solveAll(GradeLedger ledger) {
+        return solveAll(ledger.getRecords());
+    }
+
+    /**
+     * Solve some records with fork/join on the common pool.
+     * Records must not be mutated while this runs.
+     *
+     * @param records students to solve
+     * @return needed finals per student, in iteration order
+     */
+    public Result solveAll(Collection<StudentRecord> records) {
+        StudentRecord[] recs = records.toArray(new StudentRecord[0]);
+        double[] needed = new double[recs.length * LetterScale.FLOOR_COUNT];
+        ForkJoinPool.commonPool().invoke(new SolveTask(this, recs, needed, 0, recs.length));
+        return new Result(recs, needed);
+    }
+
+    /* ------------------------- types ------------------------- */
+
+    /**
+     * Needed finals for a batch of students, stored flat: one row of
+     * {@link LetterScale#FLOOR_COUNT} values per student.
+     */
+    public static final class Result {
+        private final StudentRecord[] records;
+        private final double[] needed;
+
+        Result(StudentRecord[] records, double[] needed) {
+            this.records = records;
+            this.needed = needed;
+        }
+
+        /** @return number of students */
+        public int size() {
+            return records.length;
+        }
+
+        /**
+         * Student at a position.
+         *
+         * @param i position, 0 to {@code size() - 1}
+         * @return the record
+         */
+        public StudentRecord record(int i) {
+            return records[i];
+        }
+
+        /**
+         * Final a student needs for a letter or better.
+         *
+         * @param i      position, 0 to {@code size() - 1}
+         * @param letter a passing letter, D through A+
+         * @return the final needed, or {@code NaN} if out of reach
+         */
+        public double neededFinal(int i, String letter) {
+            return needed[i * LetterScale.FLOOR_COUNT + letterIndex(letter)];
+        }
+
+        /**
+         * Every needed final for one student.
+         *
+         * @param i position, 0 to {@code size() - 1}
+         * @return copy of the row, A+ first, as {@link #neededFinals}
+         */
+        public double[] neededFinals(int i) {
+            double[] row = new double[LetterScale.FLOOR_COUNT];
+            System.arraycopy(needed, i * LetterScale.FLOOR_COUNT, row, 0, row.length);
+            return row;
+        }
+
+        /**
+         * Students who can still reach a letter or better.
+         *
+         * @param letter a passing letter, D through A+
+         * @return how many have a needed final within the cap
+         */
+        public int reachable(String letter) {
+            int k = letterIndex(letter);
+            int n = 0;
+            for (int i = 0; i < records.length; i++) {
+                if (!Double.isNaN(needed[i * LetterScale.FLOOR_COUNT + k])) n++;
+            }
+            return n;
+        }
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Write one student's row into {@code out[at, at + FLOOR_COUNT)}.
+     */
+    private void solve(StudentRecord rec, double[] out, int at) {
+        double[] w = rec.getWeights();
+        LetterScale scale = rec.getLetterScale();
+        double[] floors = scale.getFloors();
+        double ceiling = scale.getCeiling();
+        double participation = rec.getParticipation();
+        double readings = rec.unweightedReadingsScore();
+        double labs = rec.unweightedLabsScore();
+        double exercises = rec.unweightedExercisesScore();
+        double projects = rec.unweightedProjectsScore();
+        double midterm = rec.getMidterm();
+
+        // total without the exam terms, summed as weightedTotal sums it
+        double base = 0.0;
+        base += participation * w[0];
+        base += exercises * w[3];
+        base += projects * w[4];
+        base += labs * w[2];
+        base += readings * w[1];
+
+        double atPass = StudentRecord.weightedTotal(participation, readings, labs, exercises, projects,
+                midterm, PASSING_FINAL, w);
+        double atMax = StudentRecord.weightedTotal(participation, readings, labs, exercises, projects,
+                midterm, maxFinal, w);
+
+        // floors ascend D..A+; LETTERS runs A+..D
+        for (int f = 0; f < LetterScale.FLOOR_COUNT; f++) {
+            double target = floors[f];
+            double fin;
+            if (atPass >= target) {
+                fin = PASSING_FINAL;
+            } else if (!(atMax >= target)) {
+                fin = Double.NaN;
+            } else {
+                fin = closedForm(base, midterm, w[5], w[6], target);
+                fin = settle(fin, target, participation, readings, labs, exercises, projects, midterm, w);
+            }
+            if (!Double.isNaN(fin) && !(StudentRecord.weightedTotal(participation, readings, labs, exercises,
+                    projects, midterm, fin, w) <= ceiling)) {
+                fin = Double.NaN;
+            }
+            out[at + LetterScale.FLOOR_COUNT - 1 - f] = fin;
+        }
+    }
+
+    /**
+     * Final where the total line meets {@code target}: first on the
+     * segment where the midterm keeps its weight, else on the segment
+     * where the final takes it over.
+     */
+    private double closedForm(double base, double midterm, double wMidterm, double wFinal, double target) {
+        if (wFinal > 0) {
+            double fin = (target - base - midterm * wMidterm) / wFinal;
+            if (fin <= midterm) return clamp(fin);
+        }
+        double both = wMidterm + wFinal;
+        return both > 0 ? clamp((target - base) / both) : maxFinal;
+    }
+
+    private double clamp(double fin) {
+        if (!(fin >= PASSING_FINAL)) return PASSING_FINAL;
+        return Math.min(fin, maxFinal);
+    }
+
+    /**
+     * Move an estimate to the smallest final in {@code [PASSING_FINAL,
+     * maxFinal]} whose exact total reaches {@code target}. The caller has
+     * checked that {@code maxFinal} reaches it and {@code PASSING_FINAL}
+     * does not.
+     */
+    private double settle(double fin, double target, double participation, double readings, double labs,
+                          double exercises, double projects, double midterm, double[] w) {
+        for (int step = 0; step < MAX_SETTLE_STEPS; step++) {
+            if (StudentRecord.weightedTotal(participation, readings, labs, exercises, projects,
+                    midterm, fin, w) < target) {
+                fin = Math.nextUp(fin);
+                continue;
+            }
+            double lower = Math.nextDown(fin);
+            if (StudentRecord.weightedTotal(participation, readings, labs, exercises, projects,
+                    midterm, lower, w) < target) {
+                return fin;
+            }
+            fin = lower;
+        }
+        // bisect on the bit patterns, which order positive doubles
+        long lo = Double.doubleToLongBits(PASSING_FINAL);
+        long hi = Double.doubleToLongBits(maxFinal);
+        while (hi - lo > 1) {
+            long mid = (lo + hi) >>> 1;
+            if (StudentRecord.weightedTotal(participation, readings, labs, exercises, projects,
+                    midterm, Double.longBitsToDouble(mid), w) >= target) {
+                hi = mid;
+            } else {
+                lo = mid;
+            }
+        }
+        return Double.longBitsToDouble(hi);
+    }
+
+    /**
+     * Index into a result row of a passing letter (A+ is 0, D is 9).
+     */
+    private static int letterIndex(String letter) {
+        for (int i = 0; i < LetterScale.FLOOR_COUNT; i++) {
+            if (LedgerStats.LETTERS[i].equals(letter)) return i;
+        }
+        throw new IllegalArgumentException("Not a passing letter: " + letter);
+    }
+
+    /**
+     * Solves records {@code [lo, hi)}, splitting until a leaf is small.
+     * Each record writes only its own row, so tasks share no state.
+     */
+    private static final class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FinalExamSolver solver;
+        private final StudentRecord[] records;
+        private final double[] needed;
+        private final int lo;
+        private final int hi;
+
+        SolveTask(FinalExamSolver solver, StudentRecord[] records, double[] needed, int lo, int hi) {
+            this.solver = solver;
+            this.records = records;
+            this.needed = needed;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= LEAF_SIZE) {
+                for (int i = lo; i < hi; i++) solver.solve(records[i], needed, i * LetterScale.FLOOR_COUNT);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SolveTask(solver, records, needed, lo, mid),
+                    new SolveTask(solver, records, needed, mid, hi));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap footprint of {@code StudentRecord} against the
+ * original layout, which held each category in a {@code List<Double>}.
+ * <p>
+ * Usage: {@code java FootprintCheck [students]}, default 200000. Builds
+ * the same synthetic students ({@code SyntheticLedger}: 3 projects,
+ * 4 exercises, 8 labs and 20 readings each) once as {@code StudentRecord}s
+ * and once in a copy of the original layout, and reports retained bytes
+ * per student for each, measured as the heap growth after a full GC.
+ * Exits 1 if the current record is not smaller. Run with a fixed heap
+ * (e.g. {@code -Xms1g -Xmx1g}) for steadier numbers.
+ */
+public class FootprintCheck {
+
+    private static final long SEED = 42L;
+
+    public static void main(String[] args) {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        long empty = usedAfterGc();
+        StudentRecord[] current = SyntheticLedger.students(students, SEED);
+        long currentBytes = usedAfterGc() - empty;
+
+        // copies the strings too, so nothing is shared with the records
+        BoxedRecord[] boxed = new BoxedRecord[students];
+        for (int i = 0; i < students; i++) boxed[i] = new BoxedRecord(current[i]);
+        current = null;
+        long boxedBytes = usedAfterGc() - empty;
+
+        double perCurrent = (double) currentBytes / students;
+        double perBoxed = (double) boxedBytes / students;
+        System.out.printf("%d students, 35 scores each%n", students);
+        System.out.printf("%-28s %10.1f B/student%n", "List<Double> buckets", perBoxed);
+        System.out.printf("%-28s %10.1f B/student%n", "ScoreBucket (current)", perCurrent);
+        System.out.printf("%-28s %10.1f%%%n", "saved", 100 * (1 - perCurrent / perBoxed));
+        if (boxed.length != students || !(perCurrent < perBoxed)) System.exit(1);
+    }
+
+    /**
+     * Heap in use after collecting until it stops shrinking.
+     */
+    private static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = rt.totalMemory() - rt.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * Fields of the original {@code StudentRecord}: identity, three exam
+     * scores, seven weights and four boxed score lists.
+     */
+    private static final class BoxedRecord {
+        final String name;
+        final String studentId;
+        final double participation;
+        final double midterm;
+        final double finalExam;
+        final double wParticipation;
+        final double wReadings;
+        final double wLabs;
+        final double wExercises;
+        final double wProjects;
+        final double wMidterm;
+        final double wFinal;
+        final List<Double> labs = new ArrayList<>();
+        final List<Double> exercises = new ArrayList<>();
+        final List<Double> projects = new ArrayList<>();
+        final List<Double> readings = new ArrayList<>();
+
+        BoxedRecord(StudentRecord r) {
+            name = new String(r.getStudentName());
+            studentId = new String(r.getGNumber());
+            participation = r.getParticipation();
+            midterm = r.getMidterm();
+            finalExam = r.getFinalExam();
+            double[] w = r.getWeights();
+            wParticipation = w[0];
+            wReadings = w[1];
+            wLabs = w[2];
+            wExercises = w[3];
+            wProjects = w[4];
+            wMidterm = w[5];
+            wFinal = w[6];
+            // one add per score, as the original adders did
+            for (double s : r.labBucket().toArray()) labs.add(s);
+            for (double s : r.exerciseBucket().toArray()) exercises.add(s);
+            for (double s : r.projectBucket().toArray()) projects.add(s);
+            for (double s : r.readingBucket().toArray()) readings.add(s);
+        }
+    }
+}
@@ -0,0 +1,648 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of grade entry for one {@code GradeLedger}.
+ * <p>
+ * The journal lives in a directory holding one generation at a time:
+ * {@code snapshot-<g>.snap} (a {@code LedgerSnapshot}, absent for g = 0)
+ * and {@code journal-<g>.log}, the mutations made since that snapshot.
+ * Opening the directory loads the newest snapshot, replays its log, and
+ * then records every insert and record mutation of the ledger.
+ * <p>
+ * Entries are buffered and written with group commit: a background thread
+ * writes and fsyncs everything appended in the last interval at once, so
+ * one fsync covers many entries. {@link #commit()} forces durability right
+ * away. Each entry carries a CRC32; a torn tail left by a crash is dropped
+ * on recovery.
+ * <p>
+ * {@link #compact()} folds the log into snapshot g+1 and starts an empty
+ * log g+1. Old files are deleted only after the new snapshot is in place,
+ * so a crash at any point recovers to the same ledger.
+ * <p>
+ * Records are identified by G#; the ledger keeps one record per G#. A
+ * record without a G# cannot be replayed, so inserting one throws
+ * {@code IllegalArgumentException} and leaves the ledger unchanged, and
+ * {@link #open} refuses a directory whose ledger holds one. Clearing the
+ * G# of a record already in the ledger is likewise rejected; that change
+ * has been applied in memory by then and is not logged.
+ */
+public class GradeJournal implements RecordListener, Closeable {
+
+    /** "GLJN" */
+    private static final int LOG_MAGIC = 0x474C4A4E;
+    private static final int LOG_VERSION = 1;
+    private static final int LOG_HEADER_BYTES = 16;
+    private static final int ENTRY_HEADER_BYTES = 8;
+
+    private static final long DEFAULT_SYNC_MILLIS = 20;
+    private static final int WRITE_THRESHOLD = 1 << 16;
+
+    private final Path directory;
+    private final GradeLedger ledger;
+    private final ScheduledExecutorService syncer;
+
+    private long generation;
+    private FileChannel log;
+
+    /** Encoded entries not yet written to the log. */
+    private ByteBuffer pending = ByteBuffer.allocate(WRITE_THRESHOLD * 2);
+
+    /** Scratch space for encoding one entry. */
+    private ByteBuffer entry = ByteBuffer.allocate(256);
+
+    private final CRC32 crc = new CRC32();
+
+    /** True when entries were appended since the last group commit. */
+    private boolean dirty;
+
+    /** Failure from the background syncer, reported on the next call. */
+    private IOException failure;
+
+    private boolean closed;
+
+    private GradeJournal(Path directory, GradeLedger ledger, long generation, FileChannel log, long syncMillis) {
+        this.directory = directory;
+        this.ledger = ledger;
+        this.generation = generation;
+        this.log = log;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "grade-journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::backgroundSync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        ledger.addListener(this);
+    }
+
+    /* ========================= lifecycle ========================= */
+
+    /**
+     * Recover the ledger in a journal directory and start logging to it,
+     * fsyncing every 20 ms.
+     *
+     * @param directory journal directory; created if missing
+     * @return open journal
+     * @throws IOException if the files cannot be read or written
+     */
+    public static GradeJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SYNC_MILLIS);
+    }
+
+    /**
+     * Recover the ledger in a journal directory and start logging to it.
+     *
+     * @param directory  journal directory; created if missing
+     * @param syncMillis group-commit interval; entries become durable within this delay
+     * @return open journal
+     * @throws IOException if the files cannot be read or written
+     */
+    public static GradeJournal open(Path directory, long syncMillis) throws IOException {
+        Files.createDirectories(directory);
+        long generation = latestGeneration(directory);
+
+        Path snapshot = snapshotPath(directory, generation);
+        // read, not mapped: compaction must be able to delete this file
+        GradeLedger ledger = Files.exists(snapshot) ? LedgerSnapshot.load(snapshot) : new GradeLedger();
+
+        Path logFile = logPath(directory, generation);
+        FileChannel log = FileChannel.open(logFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() < LOG_HEADER_BYTES) {
+            log.truncate(0);
+            writeHeader(log, generation);
+        } else {
+            long valid = replay(logFile, generation, ledger);
+            log.truncate(valid);
+        }
+        log.position(log.size());
+        for (StudentRecord record : ledger.getRecords()) {
+            if (record.getGNumber() == null) {
+                log.close();
+                throw new IOException("Journaled record without a G#: " + record.getStudentName());
+            }
+        }
+        removeOtherGenerations(directory, generation);
+
+        return new GradeJournal(directory, ledger, generation, log, syncMillis);
+    }
+
+    /**
+     * The recovered ledger; every change to it is journaled.
+     *
+     * @return live ledger
+     */
+    public GradeLedger ledger() {
+        return ledger;
+    }
+
+    /**
+     * Write and fsync every entry appended so far.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void commit() throws IOException {
+        FileChannel ch;
+        synchronized (this) {
+            checkOpen();
+            writePending();
+            dirty = false;
+            ch = log;
+        }
+        try {
+            ch.force(false);
+        } catch (IOException e) {
+            // compact() closes a log only after its entries are in a forced snapshot
+            synchronized (this) {
+                if (ch != log) return;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fold the log into a fresh snapshot and start an empty log.
+     *
+     * @throws IOException if the snapshot or log cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        commit();
+        long next = generation + 1;
+
+        Path tmp = directory.resolve("snapshot-" + next + ".snap.tmp");
+        LedgerSnapshot.save(ledger, tmp);
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotPath(directory, next), StandardCopyOption.ATOMIC_MOVE);
+
+        FileChannel nextLog = FileChannel.open(logPath(directory, next),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeHeader(nextLog, next);
+        nextLog.position(nextLog.size());
+
+        log.close();
+        log = nextLog;
+        generation = next;
+        removeOtherGenerations(directory, next);
+    }
+
+    /**
+     * Commit outstanding entries, stop logging and close the log.
+     *
+     * @throws IOException if the final commit fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            try {
+                commit();
+            } finally {
+                closed = true;
+                ledger.removeListener(this);
+                syncer.shutdownNow();
+                log.close();
+            }
+        }
+    }
+
+    /* ========================= listening ========================= */
+
+    @Override
+    public void recordChanged(StudentRecord record) {
+        // totals are not logged; recordUpdated carries the mutation itself
+    }
+
+    @Override
+    public synchronized void recordUpdated(StudentRecord record, GradeOp op, double value) {
+        append(requireGNumber(record.getGNumber(), record), op, record, value, null);
+    }
+
+    @Override
+    public synchronized void gNumberChanged(StudentRecord record, String previous) {
+        requireGNumber(record.getGNumber(), record);
+        append(requireGNumber(previous, record), GradeOp.SET_GNUMBER, record, Double.NaN, record.getGNumber());
+    }
+
+    /* ------------------------- appending ------------------------- */
+
+    private static String requireGNumber(String gNumber, StudentRecord record) {
+        if (gNumber == null) {
+            throw new IllegalArgumentException("Journaled records need a G#: " + record.getStudentName());
+        }
+        return gNumber;
+    }
+
+    private void append(String gNumber, GradeOp op, StudentRecord record, double value, String text) {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        while (true) {
+            try {
+                entry.clear();
+                entry.position(ENTRY_HEADER_BYTES);
+                entry.put((byte) op.code());
+                putString(entry, gNumber);
+                encodeBody(entry, op, record, value, text);
+                break;
+            } catch (BufferOverflowException e) {
+                entry = ByteBuffer.allocate(entry.capacity() * 2);
+            }
+        }
+        int payload = entry.position() - ENTRY_HEADER_BYTES;
+        crc.reset();
+        crc.update(entry.array(), ENTRY_HEADER_BYTES, payload);
+        entry.putInt(0, payload);
+        entry.putInt(4, (int) crc.getValue());
+        entry.flip();
+
+        if (pending.remaining() < entry.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + entry.remaining()));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.put(entry);
+        dirty = true;
+
+        if (pending.position() >= WRITE_THRESHOLD) {
+            try {
+                writePending();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void encodeBody(ByteBuffer out, GradeOp op, StudentRecord record, double value, String text) {
+        switch (op) {
+            case ADD_READING:
+            case ADD_LAB:
+            case ADD_EXERCISE:
+            case ADD_PROJECT:
+            case SET_PARTICIPATION:
+            case SET_MIDTERM:
+            case SET_FINAL:
+                out.putDouble(value);
+                break;
+            case SET_READING_DROPS:
+            case SET_LAB_DROPS:
+            case SET_EXERCISE_DROPS:
+            case SET_PROJECT_DROPS:
+                out.putInt((int) value);
+                break;
+            case SET_WEIGHTS:
+                for (double w : record.getWeights()) out.putDouble(w);
+                break;
+            case ADD_READINGS:
+                putTail(out, record.readingBucket(), (int) value);
+                break;
+            case ADD_LABS:
+                putTail(out, record.labBucket(), (int) value);
+                break;
+            case ADD_EXERCISES:
+                putTail(out, record.exerciseBucket(), (int) value);
+                break;
+            case ADD_PROJECTS:
+                putTail(out, record.projectBucket(), (int) value);
+                break;
+            case REPLACE_READING:
+                putBucket(out, record.readingBucket());
+                break;
+            case REPLACE_LAB:
+                putBucket(out, record.labBucket());
+                break;
+            case REPLACE_EXERCISE:
+                putBucket(out, record.exerciseBucket());
+                break;
+            case REPLACE_PROJECT:
+                putBucket(out, record.projectBucket());
+                break;
+            case SET_NAME:
+                putString(out, record.getStudentName());
+                break;
+            case SET_LETTER_SCALE:
+                putScale(out, record.getLetterScale());
+                break;
+            case SET_GNUMBER:
+                putString(out, text);
+                break;
+            case INSERT:
+                putImage(out, record);
+                break;
+            case REMOVE:
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported op: " + op);
+        }
+    }
+
+    private static void putImage(ByteBuffer out, StudentRecord r) {
+        putString(out, r.getStudentName());
+        for (double w : r.getWeights()) out.putDouble(w);
+        out.putInt(r.getReadingDrops());
+        out.putInt(r.getLabDrops());
+        out.putInt(r.getExerciseDrops());
+        out.putInt(r.getProjectDrops());
+        out.putDouble(r.getParticipation());
+        out.putDouble(r.getMidterm());
+        out.putDouble(r.getFinalExam());
+        for (ScoreBucket b : new ScoreBucket[] {r.readingBucket(), r.labBucket(), r.exerciseBucket(), r.projectBucket()}) {
+            putBucket(out, b);
+        }
+        putScale(out, r.getLetterScale());
+    }
+
+    /**
+     * Scores of one category; a replace is logged as the whole list
+     * because listeners see the new score but not its position.
+     */
+    private static void putBucket(ByteBuffer out, ScoreBucket b) {
+        out.putInt(b.size());
+        for (int i = 0; i < b.size(); i++) out.putDouble(b.get(i));
+    }
+
+    /**
+     * The last {@code count} scores of one category, as appended by a
+     * bulk add.
+     */
+    private static void putTail(ByteBuffer out, ScoreBucket b, int count) {
+        out.putInt(count);
+        for (int i = b.size() - count; i < b.size(); i++) out.putDouble(b.get(i));
+    }
+
+    private static void putScale(ByteBuffer out, LetterScale scale) {
+        for (double f : scale.getFloors()) out.putDouble(f);
+        out.putDouble(scale.getCeiling());
+    }
+
+    private static void putString(ByteBuffer out, String s) {
+        if (s == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    private void writePending() throws IOException {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+        pending.flip();
+        while (pending.hasRemaining()) log.write(pending);
+        pending.clear();
+    }
+
+    /**
+     * Group commit: hand everything buffered to the OS under the lock,
+     * then fsync outside it so writers are not blocked by the disk. A
+     * force that fails because {@link #compact()} swapped the log out
+     * meanwhile is not a failure: those entries are in the new snapshot.
+     */
+    private void backgroundSync() {
+        FileChannel ch;
+        synchronized (this) {
+            if (closed || !dirty) return;
+            try {
+                writePending();
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            dirty = false;
+            ch = log;
+        }
+        try {
+            ch.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                if (!closed && ch == log) failure = e;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("Journal is closed");
+    }
+
+    /* ------------------------- recovery ------------------------- */
+
+    /**
+     * Apply every intact entry of a log to the ledger.
+     *
+     * @return byte length of the intact prefix
+     */
+    private static long replay(Path logFile, long generation, GradeLedger ledger) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(FileChannel.open(logFile, StandardOpenOption.READ)), 1 << 16))) {
+            if (in.readInt() != LOG_MAGIC) throw new IOException("Not a grade journal: " + logFile);
+            int version = in.readInt();
+            if (version != LOG_VERSION) throw new IOException("Unsupported journal version " + version + ": " + logFile);
+            if (in.readLong() != generation) throw new IOException("Journal generation mismatch: " + logFile);
+
+            long valid = LOG_HEADER_BYTES;
+            CRC32 check = new CRC32();
+            byte[] payload = new byte[256];
+            while (true) {
+                int length;
+                int sum;
+                try {
+                    length = in.readInt();
+                    sum = in.readInt();
+                    if (length < 0 || length > (1 << 28)) return valid;
+                    if (payload.length < length) payload = new byte[Math.max(length, payload.length * 2)];
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                check.reset();
+                check.update(payload, 0, length);
+                if ((int) check.getValue() != sum) return valid;
+
+                apply(ByteBuffer.wrap(payload, 0, length), ledger);
+                valid += ENTRY_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private static void apply(ByteBuffer in, GradeLedger ledger) throws IOException {
+        GradeOp op = GradeOp.fromCode(in.get());
+        String gNumber = getString(in);
+        if (op == null) throw new IOException("Unknown journal op for " + gNumber);
+
+        if (op == GradeOp.INSERT) {
+            ledger.insertRecord(getImage(in, gNumber));
+            return;
+        }
+        StudentRecord rec = ledger.findRecord(gNumber);
+        if (rec == null) throw new IOException("Journal entry for unknown G# " + gNumber);
+        switch (op) {
+            case ADD_READING:        rec.addReading(in.getDouble()); break;
+            case ADD_LAB:            rec.addLab(in.getDouble()); break;
+            case ADD_EXERCISE:       rec.addExercise(in.getDouble()); break;
+            case ADD_PROJECT:        rec.addProject(in.getDouble()); break;
+            case ADD_READINGS:       rec.addReadings(getDoubles(in, in.getInt())); break;
+            case ADD_LABS:           rec.addLabs(getDoubles(in, in.getInt())); break;
+            case ADD_EXERCISES:      rec.addExercises(getDoubles(in, in.getInt())); break;
+            case ADD_PROJECTS:       rec.addProjects(getDoubles(in, in.getInt())); break;
+            case SET_PARTICIPATION:  rec.setParticipation(in.getDouble()); break;
+            case SET_MIDTERM:        rec.setMidterm(in.getDouble()); break;
+            case SET_FINAL:          rec.setFinalExam(in.getDouble()); break;
+            case SET_READING_DROPS:  rec.setReadingDrops(in.getInt()); break;
+            case SET_LAB_DROPS:      rec.setLabDrops(in.getInt()); break;
+            case SET_EXERCISE_DROPS: rec.setExerciseDrops(in.getInt()); break;
+            case SET_PROJECT_DROPS:  rec.setProjectDrops(in.getInt()); break;
+            case SET_WEIGHTS:        rec.setWeights(getDoubles(in, StudentRecord.WEIGHT_COUNT)); break;
+            case REPLACE_READING:    replaceAll(rec.readingBucket(), getDoubles(in, in.getInt()), rec::replaceReading); break;
+            case REPLACE_LAB:        replaceAll(rec.labBucket(), getDoubles(in, in.getInt()), rec::replaceLab); break;
+            case REPLACE_EXERCISE:   replaceAll(rec.exerciseBucket(), getDoubles(in, in.getInt()), rec::replaceExercise); break;
+            case REPLACE_PROJECT:    replaceAll(rec.projectBucket(), getDoubles(in, in.getInt()), rec::replaceProject); break;
+            case SET_NAME:           rec.setStudentName(getString(in)); break;
+            case SET_LETTER_SCALE:   rec.setLetterScale(getScale(in)); break;
+            case SET_GNUMBER:        rec.setGNumber(getString(in)); break;
+            case REMOVE:             ledger.removeRecord(gNumber); break;
+            default:
+                throw new IOException("Unsupported journal op " + op);
+        }
+    }
+
+    private static StudentRecord getImage(ByteBuffer in, String gNumber) {
+        String name = getString(in);
+        StudentRecord rec = new StudentRecord(name, gNumber, getDoubles(in, StudentRecord.WEIGHT_COUNT));
+        rec.setReadingDrops(in.getInt());
+        rec.setLabDrops(in.getInt());
+        rec.setExerciseDrops(in.getInt());
+        rec.setProjectDrops(in.getInt());
+        rec.setParticipation(in.getDouble());
+        rec.setMidterm(in.getDouble());
+        rec.setFinalExam(in.getDouble());
+        rec.addReadings(getDoubles(in, in.getInt()));
+        rec.addLabs(getDoubles(in, in.getInt()));
+        rec.addExercises(getDoubles(in, in.getInt()));
+        rec.addProjects(getDoubles(in, in.getInt()));
+        // images logged before letter scales existed end here
+        if (in.hasRemaining()) rec.setLetterScale(getScale(in));
+        return rec;
+    }
+
+    /**
+     * Replay a logged category image by replacing the scores that differ.
+     */
+    private static void replaceAll(ScoreBucket current, double[] logged, IntDoubleConsumer replace) throws IOException {
+        if (logged.length != current.size()) {
+            throw new IOException("Journal replace expects " + logged.length + " scores, record has " + current.size());
+        }
+        for (int i = 0; i < logged.length; i++) {
+            if (Double.compare(current.get(i), logged[i]) != 0) replace.accept(i, logged[i]);
+        }
+    }
+
+    /** Replacer such as {@code StudentRecord::replaceLab}. */
+    private interface IntDoubleConsumer {
+        void accept(int index, double score);
+    }
+
+    private static LetterScale getScale(ByteBuffer in) {
+        return new LetterScale(getDoubles(in, LetterScale.FLOOR_COUNT), in.getDouble());
+    }
+
+    private static double[] getDoubles(ByteBuffer in, int count) {
+        double[] out = new double[count];
+        for (int i = 0; i < count; i++) out[i] = in.getDouble();
+        return out;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+
+    /* ------------------------- files ------------------------- */
+
+    private static void writeHeader(FileChannel ch, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        header.putInt(LOG_MAGIC).putInt(LOG_VERSION).putLong(generation).flip();
+        ch.position(0);
+        while (header.hasRemaining()) ch.write(header);
+        ch.force(true);
+    }
+
+    /**
+     * Fsync a directory so renames and new files in it survive a crash.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // Windows cannot open a directory; NTFS journals the rename itself
+        }
+        try (FileChannel dir = ch) {
+            dir.force(true);
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long generation) {
+        return directory.resolve("snapshot-" + generation + ".snap");
+    }
+
+    private static Path logPath(Path directory, long generation) {
+        return directory.resolve("journal-" + generation + ".log");
+    }
+
+    private static long latestGeneration(Path directory) throws IOException {
+        long latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.snap")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                try {
+                    latest = Math.max(latest, Long.parseLong(name.substring(9, name.length() - 5)));
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Delete every file but generation {@code keep}, after making the
+     * directory entries of that generation durable.
+     */
+    private static void removeOtherGenerations(Path directory, long keep) throws IOException {
+        forceDirectory(directory);
+        String snapshot = snapshotPath(directory, keep).getFileName().toString();
+        String log = logPath(directory, keep).getFileName().toString();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{snapshot-*.snap,snapshot-*.snap.tmp,journal-*.log}")) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                if (!name.equals(snapshot) && !name.equals(log)) Files.deleteIfExists(f);
+            }
+        }
+    }
+}
@@ -1,22 +1,112 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
-import static java.util.Collections.sort;
 
 /**
  * Comparator-backed grade ledger for {@code StudentRecord}.
  * Provides add, stats (min/max/median/avg), and pretty printing.
+ * Records are also kept in a rank tree keyed by total, updated as records
+ * change, so min/max/median never re-scan or re-sort the ledger; the
+ * lowest and highest are cached, so repeated min/max queries are O(1).
+ * <p>
+ * Each record has one rank-tree node, which also carries its insertion
+ * sequence and its place in insertion order, and one entry in the
+ * record-to-node map. The G# and name indexes point at the same nodes.
+ * <p>
+ * A hash index on G# gives constant-time lookup and upsert: inserting a
+ * record whose G# is already present replaces the old record in place.
+ * A sorted index on name answers case-insensitive prefix searches. Both
+ * follow G# and name changes made on the records themselves.
  */
 public class GradeLedger implements Comparator<StudentRecord> {
 
     /**
-     * All student grade records in this gradebook.
+     * Oldest and newest nodes; the rest of the insertion order is linked
+     * through {@code Node.before} and {@code Node.after}, so removal is O(1)
+     * and a replacement takes its predecessor's place.
      */
-    private Collection<StudentRecord> records;
+    private TotalRankTree.Node head;
+    private TotalRankTree.Node tail;
+    private int count;
+
+    /**
+     * Primary index: rank-tree node of the record holding each G#.
+     */
+    private final Map<String, TotalRankTree.Node> byGNumber = new HashMap<>();
+
+    /**
+     * Secondary index: nodes per name (case-insensitive), each list in
+     * insertion order.
+     */
+    private final TreeMap<String, List<TotalRankTree.Node>> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Records ordered by (total, insertion sequence).
+     */
+    private final TotalRankTree ranks = new TotalRankTree();
+
+    /**
+     * Rank-tree node(s) for each record, chained through {@code sameRecord};
+     * the only map keyed by record.
+     */
+    private final Map<StudentRecord, TotalRankTree.Node> nodes = new IdentityHashMap<>();
+
+    /**
+     * Records whose total changed since their node was last keyed. Holds
+     * only the records touched since the last query, so it is usually
+     * empty; it dedupes repeated updates to one record before re-keying.
+     */
+    private final Set<StudentRecord> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Callbacks registered on the ledger; they see every record's updates
+     * plus an {@code INSERT} for each new record and a {@code REMOVE} for
+     * each removed one. {@code INSERT} is announced before the record is
+     * linked, so a listener can veto it by throwing.
+     */
+    private RecordListener[] listeners = new RecordListener[0];
+
+    /**
+     * Queues changed records for re-keying on the next stats query and
+     * forwards record updates to the ledger's listeners.
+     */
+    private final RecordListener tracker = new RecordListener() {
+        @Override
+        public void recordChanged(StudentRecord record) {
+            pending.add(record);
+        }
+
+        @Override
+        public void recordUpdated(StudentRecord record, GradeOp op, double value) {
+            for (RecordListener l : listeners) l.recordUpdated(record, op, value);
+        }
+
+        @Override
+        public void gNumberChanged(StudentRecord record, String previous) {
+            reindexGNumber(record, previous);
+            for (RecordListener l : listeners) l.gNumberChanged(record, previous);
+        }
+
+        @Override
+        public void nameChanged(StudentRecord record, String previous) {
+            for (TotalRankTree.Node n = nodes.get(record); n != null; n = n.sameRecord) {
+                unindexName(n, previous);
+                indexName(n, record.getStudentName());
+            }
+            for (RecordListener l : listeners) l.nameChanged(record, previous);
+        }
+    };
+
+    /**
+     * Insertion counter used to break ties on total.
+     */
+    private long nextSeq;
 
     /**
      * Build an empty gradebook.
      */
     public GradeLedger() {
-        this.records = new ArrayList<>();
     }
 
     /**
@@ -26,79 +116,299 @@ public class GradeLedger implements Comparator<StudentRecord> {
      */
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("┌───────────────────── GRADEBOOK ─────────────────────┐\n");
-        if (records.isEmpty()) {
-            sb.append("│ No records yet.                                      │\n");
+        int expected = 256 + count * 64;
+        StringWriter out = new StringWriter(expected);
+        try {
+            new ReportWriter(out, expected).writeText(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    /**
+     * Add a student's grades to the ledger. If a record with the same G#
+     * is already present it is replaced, keeping its place in insertion
+     * order.
+     *
+     * @param entry grades for one student.
+     */
+    public void insertRecord(StudentRecord entry) {
+        for (RecordListener l : listeners) l.recordUpdated(entry, GradeOp.INSERT, Double.NaN);
+        String gNumber = entry.getGNumber();
+        TotalRankTree.Node old = gNumber == null ? null : byGNumber.get(gNumber);
+        TotalRankTree.Node node;
+        if (old != null) {
+            unlink(old);
+            node = link(entry, old.seq);
+            replaceInOrder(old, node);
         } else {
-            sb.append("│ Students                                             │\n");
-            for (StudentRecord r : records) {
-                sb.append(String.format(
-                        "│ • %-20s | Letter: %-2s | Total: %6.2f │\n",
-                        r.getStudentName(), r.letterGrade(), r.totalScore()
-                ));
+            node = link(entry, nextSeq++);
+            appendToOrder(node);
+        }
+        if (gNumber != null) byGNumber.put(gNumber, node);
+    }
+
+    /**
+     * Remove the record holding a G#.
+     *
+     * @param gNumber G# to remove
+     * @return the removed record, or {@code null} if none had that G#
+     */
+    public StudentRecord removeRecord(String gNumber) {
+        TotalRankTree.Node node = byGNumber.remove(gNumber);
+        if (node == null) return null;
+        unlink(node);
+        removeFromOrder(node);
+        for (RecordListener l : listeners) l.recordUpdated(node.record, GradeOp.REMOVE, Double.NaN);
+        return node.record;
+    }
+
+    /**
+     * Look up a record by G#.
+     *
+     * @param gNumber G# to find
+     * @return matching record, or {@code null} if none
+     */
+    public StudentRecord findRecord(String gNumber) {
+        TotalRankTree.Node node = byGNumber.get(gNumber);
+        return node == null ? null : node.record;
+    }
+
+    /**
+     * Records whose name starts with {@code prefix}, ignoring case,
+     * ordered by name and then insertion.
+     *
+     * @param prefix name prefix; empty matches every named record
+     * @return matching records
+     */
+    public List<StudentRecord> findByNamePrefix(String prefix) {
+        List<StudentRecord> out = new ArrayList<>();
+        for (Map.Entry<String, List<TotalRankTree.Node>> e : byName.tailMap(prefix, true).entrySet()) {
+            if (!e.getKey().regionMatches(true, 0, prefix, 0, prefix.length())) break;
+            for (TotalRankTree.Node n : e.getValue()) out.add(n.record);
+        }
+        return out;
+    }
+
+    /**
+     * Register a callback for inserts, removals and updates to any record in the ledger.
+     *
+     * @param listener callback to add
+     */
+    public void addListener(RecordListener listener) {
+        RecordListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+     * Unregister a callback added with {@link #addListener(RecordListener)}.
+     *
+     * @param listener callback to remove
+     */
+    public void removeListener(RecordListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                RecordListener[] shrunk = new RecordListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
             }
         }
-        sb.append("├──────────────────────── STATS ───────────────────────┤\n");
-        StudentRecord hi = highestRecord();
-        StudentRecord lo = lowestRecord();
-        StudentRecord med = medianRecord();
-        double avg = classAverage();
+    }
 
-        sb.append(String.format("│ Max:    %s\n", describe(hi)));
-        sb.append(String.format("│ Median: %s\n", describe(med)));
-        sb.append(String.format("│ Avg:    %s\n",
-                records.isEmpty() ? "—" : String.format("%.2f", avg)));
-        sb.append(String.format("│ Min:    %s\n", describe(lo)));
-        sb.append("└──────────────────────────────────────────────────────┘");
-        return sb.toString();
+    /**
+     * Number of records in the ledger.
+     *
+     * @return record count
+     */
+    public int size() {
+        return count;
     }
 
     /**
-     * Add a student's grades to the ledger.
+     * Records in insertion order.
      *
-     * @param entry grades for one student.
+     * @return read-only view of the records
      */
-    public void insertRecord(StudentRecord entry) {
-        records.add(entry);
+    public Collection<StudentRecord> getRecords() {
+        return new AbstractCollection<StudentRecord>() {
+            @Override
+            public Iterator<StudentRecord> iterator() {
+                return new Iterator<StudentRecord>() {
+                    private TotalRankTree.Node next = head;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public StudentRecord next() {
+                        if (next == null) throw new NoSuchElementException();
+                        StudentRecord rec = next.record;
+                        next = next.after;
+                        return rec;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
     }
 
     /**
-     * Highest-scoring student.
+     * Student at a 0-based rank by total, ascending; ties keep insertion order.
      *
-     * @return record with the greatest total, or {@code null} if none.
+     * @param k rank, {@code 0 <= k < size}
+     * @return k-th lowest record
      */
-    public StudentRecord highestRecord() {
-        StudentRecord best = null;
-        boolean first = true;
-        for (StudentRecord rec : records) {
-            if (first) {
-                best = rec;
-                first = false;
-            } else if (rec.totalScore() > best.totalScore()) {
-                best = rec;
+    public StudentRecord recordAtRank(int k) {
+        flushPending();
+        return ranks.select(k).record;
+    }
+
+    /**
+     * Share of the class scoring strictly below a student, in O(log N).
+     *
+     * @param gNumber student to rank
+     * @return percentile rank 0 to 100, or {@code NaN} if no record has that G#
+     */
+    public double percentileRank(String gNumber) {
+        StudentRecord rec = findRecord(gNumber);
+        return rec == null ? Double.NaN : percentileRank(rec.totalScore());
+    }
+
+    /**
+     * Share of the class scoring strictly below a total, in O(log N).
+     *
+     * @param total total to rank
+     * @return percentile rank 0 to 100, or 0.0 if empty
+     */
+    public double percentileRank(double total) {
+        flushPending();
+        if (count == 0) return 0.0;
+        return 100.0 * ranks.countBelow(total) / count;
+    }
+
+    /**
+     * Student at a percentile by nearest rank, in O(log N): the lowest
+     * record with at least {@code p} percent of the class at or below it.
+     *
+     * @param p percentile, 0 to 100
+     * @return record at that percentile, or {@code null} if empty
+     */
+    public StudentRecord recordAtPercentile(double p) {
+        if (!(p >= 0 && p <= 100)) throw new IllegalArgumentException("Percentile must be in [0, 100]: " + p);
+        if (count == 0) return null;
+        int rank = (int) Math.ceil(p / 100 * count) - 1;
+        return recordAtRank(Math.max(0, rank));
+    }
+
+    /**
+     * A page of the highest totals, best first; among equal totals the
+     * earliest inserted comes first. Read from the rank index in
+     * O(limit log N), so any page costs the same.
+     *
+     * @param offset number of leading students to skip
+     * @param limit  page size
+     * @return up to {@code limit} records
+     */
+    public List<StudentRecord> top(int offset, int limit) {
+        checkPage(offset, limit);
+        flushPending();
+        int n = ranks.size();
+        List<StudentRecord> out = new ArrayList<>(Math.max(0, Math.min(limit, n - offset)));
+        int pos = offset;
+        while (out.size() < limit && pos < n) {
+            // equal totals occupy ascending ranks [lo, hi); from the top they
+            // run in insertion order, i.e. in ascending rank order
+            double total = ranks.select(n - 1 - pos).total;
+            int lo = ranks.countBelow(total);
+            int hi = ranks.countAtOrBelow(total);
+            for (int rank = lo + pos - (n - hi); rank < hi && out.size() < limit; rank++, pos++) {
+                out.add(ranks.select(rank).record);
             }
         }
-        return best;
+        return out;
+    }
+
+    /**
+     * A page of the lowest totals, worst first; among equal totals the
+     * earliest inserted comes first. Read from the rank index in
+     * O(limit log N).
+     *
+     * @param offset number of leading students to skip
+     * @param limit  page size
+     * @return up to {@code limit} records
+     */
+    public List<StudentRecord> bottom(int offset, int limit) {
+        checkPage(offset, limit);
+        flushPending();
+        int end = (int) Math.min((long) offset + limit, ranks.size());
+        List<StudentRecord> out = new ArrayList<>(Math.max(0, end - offset));
+        for (int rank = offset; rank < end; rank++) out.add(ranks.select(rank).record);
+        return out;
+    }
+
+    /**
+     * A page of the highest scores by any key, best first; ties keep
+     * insertion order. {@link ScoreKey#TOTAL} uses the rank index; other
+     * keys keep a bounded heap of {@code offset + limit} students over one
+     * pass, O(N log(offset + limit)).
+     *
+     * @param key    score to rank by
+     * @param offset number of leading students to skip
+     * @param limit  page size
+     * @return up to {@code limit} records
+     */
+    public List<StudentRecord> top(ScoreKey key, int offset, int limit) {
+        if (key == ScoreKey.TOTAL) return top(offset, limit);
+        return scan(key, true, offset, limit);
+    }
+
+    /**
+     * A page of the lowest scores by any key, worst first; ties keep
+     * insertion order. Costs as {@link #top(ScoreKey, int, int)}.
+     *
+     * @param key    score to rank by
+     * @param offset number of leading students to skip
+     * @param limit  page size
+     * @return up to {@code limit} records
+     */
+    public List<StudentRecord> bottom(ScoreKey key, int offset, int limit) {
+        if (key == ScoreKey.TOTAL) return bottom(offset, limit);
+        return scan(key, false, offset, limit);
     }
 
     /**
-     * Lowest-scoring student.
+     * Highest-scoring student; the earliest inserted wins a tie. O(1)
+     * when no record was added, removed or re-graded since the last call,
+     * else O(log N) once.
+     *
+     * @return record with the greatest total, or {@code null} if none.
+     */
+    public StudentRecord highestRecord() {
+        flushPending();
+        TotalRankTree.Node best = ranks.firstOfLast();
+        return best == null ? null : best.record;
+    }
+
+    /**
+     * Lowest-scoring student; the earliest inserted wins a tie. O(1)
+     * once pending changes are re-keyed.
      *
      * @return record with the smallest total, or {@code null} if none.
      */
     public StudentRecord lowestRecord() {
-        StudentRecord worst = null;
-        boolean first = true;
-        for (StudentRecord rec : records) {
-            if (first) {
-                worst = rec;
-                first = false;
-            } else if (rec.totalScore() < worst.totalScore()) {
-                worst = rec;
-            }
-        }
-        return worst;
+        flushPending();
+        TotalRankTree.Node first = ranks.first();
+        return first == null ? null : first.record;
     }
 
     /**
@@ -107,10 +417,12 @@ public class GradeLedger implements Comparator<StudentRecord> {
      * @return median record, or {@code null} if empty.
      */
     public StudentRecord medianRecord() {
-        if (records.isEmpty()) return null;
-        ArrayList<StudentRecord> sorted = new ArrayList<>(records);
-        sorted.sort(this); // uses compare(...) below
-        return sorted.get(sorted.size() / 2);
+        if (count == 0) return null;
+        if (!Metrics.ENABLED) return recordAtRank(count / 2);
+        long t0 = System.nanoTime();
+        StudentRecord median = recordAtRank(count / 2);
+        Metrics.LEDGER_MEDIAN.record(t0);
+        return median;
     }
 
     /**
@@ -119,10 +431,51 @@ public class GradeLedger implements Comparator<StudentRecord> {
      * @return average total, or 0.0 if empty.
      */
     public double classAverage() {
-        if (records.isEmpty()) return 0.0;
+        if (count == 0) return 0.0;
         double sum = 0.0;
-        for (StudentRecord rec : records) sum += rec.totalScore();
-        return sum / records.size();
+        for (TotalRankTree.Node n = head; n != null; n = n.after) sum += n.record.totalScore();
+        return sum / count;
+    }
+
+    /**
+     * Give every record in the ledger the same letter cutoffs, e.g. a
+     * curve from {@code LetterScale.shiftToReach}.
+     *
+     * @param scale letter scale
+     */
+    public void setLetterScale(LetterScale scale) {
+        for (TotalRankTree.Node n = head; n != null; n = n.after) n.record.setLetterScale(scale);
+    }
+
+    /**
+     * Count, sum/average, standard deviation, min, max, per-letter counts
+     * and the totals histogram (deciles) in one pass.
+     *
+     * @return statistics over all records
+     */
+    public LedgerStats stats() {
+        if (!Metrics.ENABLED) return LedgerStats.of(recordArray());
+        long t0 = System.nanoTime();
+        long a0 = Metrics.LEDGER_STATS.allocationMark();
+        LedgerStats s = LedgerStats.of(recordArray());
+        Metrics.LEDGER_STATS.record(t0, a0);
+        return s;
+    }
+
+    /**
+     * Same as {@link #stats()}, graded across cores with fork/join.
+     * Results are identical to {@link #stats()}; records must not be
+     * mutated while this runs.
+     *
+     * @return statistics over all records
+     */
+    public LedgerStats parallelStats() {
+        if (!Metrics.ENABLED) return LedgerStats.parallelOf(recordArray());
+        long t0 = System.nanoTime();
+        long a0 = Metrics.LEDGER_STATS.allocationMark();
+        LedgerStats s = LedgerStats.parallelOf(recordArray());
+        Metrics.LEDGER_STATS.record(t0, a0);
+        return s;
     }
 
     /**
@@ -137,11 +490,170 @@ public class GradeLedger implements Comparator<StudentRecord> {
         return Double.compare(left.totalScore(), right.totalScore());
     }
 
+    /**
+     * Ascending totals of the records whose final is passing, read from
+     * the rank tree without re-grading; input to the curve solvers.
+     *
+     * @return sorted totals
+     */
+    double[] passingTotals() {
+        flushPending();
+        double[] out = new double[count];
+        int[] n = {0};
+        ranks.forEachAscending(node -> {
+            if (node.record.finalIsPassing()) out[n[0]++] = node.total;
+        });
+        return Arrays.copyOf(out, n[0]);
+    }
+
     /* ------------------------- helpers ------------------------- */
 
-    private String describe(StudentRecord r) {
-        if (r == null) return "—";
-        return String.format("%s (Letter: %s, Total: %.2f)",
-                r.getStudentName(), r.letterGrade(), r.totalScore());
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must be >= 0: " + offset + ", " + limit);
+        }
+    }
+
+    /**
+     * Bounded-heap leaderboard over the records in insertion order.
+     */
+    private List<StudentRecord> scan(ScoreKey key, boolean highest, int offset, int limit) {
+        checkPage(offset, limit);
+        int keep = (int) Math.min((long) offset + limit, count);
+        if (keep <= offset) return new ArrayList<>();
+        TopKHeap heap = new TopKHeap(keep, highest);
+        for (TotalRankTree.Node n = head; n != null; n = n.after) heap.offer(key.of(n.record), n.seq, n.record);
+        return heap.drain(offset);
+    }
+
+    /**
+     * Records in insertion order, for the statistics passes.
+     */
+    private StudentRecord[] recordArray() {
+        StudentRecord[] out = new StudentRecord[count];
+        int i = 0;
+        for (TotalRankTree.Node n = head; n != null; n = n.after) out[i++] = n.record;
+        return out;
+    }
+
+    private void appendToOrder(TotalRankTree.Node node) {
+        node.before = tail;
+        if (tail == null) head = node;
+        else tail.after = node;
+        tail = node;
+        count++;
+    }
+
+    /**
+     * Put {@code node} where {@code old} was in insertion order.
+     */
+    private void replaceInOrder(TotalRankTree.Node old, TotalRankTree.Node node) {
+        node.before = old.before;
+        node.after = old.after;
+        if (old.before == null) head = node;
+        else old.before.after = node;
+        if (old.after == null) tail = node;
+        else old.after.before = node;
+        old.before = old.after = null;
+    }
+
+    private void removeFromOrder(TotalRankTree.Node node) {
+        if (node.before == null) head = node.after;
+        else node.before.after = node.after;
+        if (node.after == null) tail = node.before;
+        else node.after.before = node.before;
+        node.before = node.after = null;
+        count--;
+    }
+
+    /**
+     * Create and index a node for {@code entry}; the caller places it in
+     * insertion order and adds it to {@code byGNumber}.
+     */
+    private TotalRankTree.Node link(StudentRecord entry, long seq) {
+        TotalRankTree.Node node = new TotalRankTree.Node(entry, seq);
+        node.total = entry.totalScore();
+        node.sameRecord = nodes.put(entry, node);
+        if (node.sameRecord == null) entry.addListener(tracker);
+        ranks.insert(node);
+        indexName(node, entry.getStudentName());
+        return node;
+    }
+
+    /**
+     * Drop a node from the rank tree, name index and record chain; the
+     * caller removes it from insertion order and {@code byGNumber}.
+     */
+    private void unlink(TotalRankTree.Node node) {
+        StudentRecord rec = node.record;
+        ranks.remove(node);
+        unindexName(node, rec.getStudentName());
+        TotalRankTree.Node head = nodes.get(rec);
+        if (head == node) {
+            if (node.sameRecord == null) {
+                nodes.remove(rec);
+                pending.remove(rec);
+                rec.removeListener(tracker);
+            } else {
+                nodes.put(rec, node.sameRecord);
+            }
+        } else {
+            TotalRankTree.Node prev = head;
+            while (prev.sameRecord != node) prev = prev.sameRecord;
+            prev.sameRecord = node.sameRecord;
+        }
+        node.sameRecord = null;
+    }
+
+    /**
+     * Move a record's G# index entry after its G# changed. A record that
+     * already held the new G# is removed first, so each G# maps to one
+     * record.
+     */
+    private void reindexGNumber(StudentRecord rec, String previous) {
+        TotalRankTree.Node node = previous == null ? null : byGNumber.get(previous);
+        if (node != null && node.record == rec) {
+            byGNumber.remove(previous);
+        } else {
+            node = nodes.get(rec);
+        }
+        String next = rec.getGNumber();
+        if (next == null) return;
+        TotalRankTree.Node holder = byGNumber.get(next);
+        if (holder != null && holder.record != rec) removeRecord(next);
+        byGNumber.put(next, node);
+    }
+
+    private void indexName(TotalRankTree.Node node, String name) {
+        if (name == null) return;
+        List<TotalRankTree.Node> list = byName.computeIfAbsent(name, k -> new ArrayList<>(1));
+        int i = list.size();
+        while (i > 0 && list.get(i - 1).seq > node.seq) i--;
+        list.add(i, node);
+    }
+
+    private void unindexName(TotalRankTree.Node node, String name) {
+        if (name == null) return;
+        List<TotalRankTree.Node> list = byName.get(name);
+        if (list == null) return;
+        list.remove(node);
+        if (list.isEmpty()) byName.remove(name);
+    }
+
+    /**
+     * Re-key every record that changed since the last stats query.
+     */
+    private void flushPending() {
+        if (pending.isEmpty()) return;
+        if (Metrics.ENABLED) Metrics.LEDGER_RERANKED.add(pending.size());
+        for (StudentRecord rec : pending) {
+            double total = rec.totalScore();
+            for (TotalRankTree.Node n = nodes.get(rec); n != null; n = n.sameRecord) {
+                ranks.remove(n);
+                n.total = total;
+                ranks.insert(n);
+            }
+        }
+        pending.clear();
     }
 }
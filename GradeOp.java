@@ -0,0 +1,62 @@
+/**
+ * Kinds of grade-entry mutation reported to {@code RecordListener}s and
+ * written to the {@code GradeJournal}. Codes are stored on disk, so existing
+ * codes must never change.
+ */
+public enum GradeOp {
+    ADD_READING(1),
+    ADD_LAB(2),
+    ADD_EXERCISE(3),
+    ADD_PROJECT(4),
+    SET_PARTICIPATION(5),
+    SET_MIDTERM(6),
+    SET_FINAL(7),
+    SET_WEIGHTS(8),
+    SET_READING_DROPS(9),
+    SET_LAB_DROPS(10),
+    SET_EXERCISE_DROPS(11),
+    SET_PROJECT_DROPS(12),
+    SET_NAME(13),
+    SET_GNUMBER(14),
+    INSERT(15),
+    REMOVE(16),
+    SET_LETTER_SCALE(17),
+    REPLACE_READING(18),
+    REPLACE_LAB(19),
+    REPLACE_EXERCISE(20),
+    REPLACE_PROJECT(21),
+    ADD_READINGS(22),
+    ADD_LABS(23),
+    ADD_EXERCISES(24),
+    ADD_PROJECTS(25);
+
+    private static final GradeOp[] BY_CODE = new GradeOp[32];
+    static {
+        for (GradeOp op : values()) BY_CODE[op.code] = op;
+    }
+
+    private final int code;
+
+    GradeOp(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Stable on-disk code.
+     *
+     * @return op code
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Look up an op by its on-disk code.
+     *
+     * @param code op code
+     * @return matching op, or {@code null} if unknown
+     */
+    public static GradeOp fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
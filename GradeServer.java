@@ -0,0 +1,325 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running local HTTP/JSON service over a resident
+ * {@code ConcurrentGradeLedger}, so advisors' queries do not each start
+ * a JVM and re-parse the class file.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>{@code GET /students/<G#>}: name, G#, total and letter</li>
+ *   <li>{@code GET /stats}: count, average, and the highest, median and
+ *       lowest students</li>
+ *   <li>{@code POST /scores}: a body of {@code DeltaApplier} lines
+ *       ({@code G#, bucket, op, value[, position]}); answers with the
+ *       applied and rejected counts</li>
+ * </ul>
+ * Each request runs on its own virtual thread when the JVM has them
+ * (Java 21+), and on a cached thread pool otherwise. Reads never lock:
+ * a lookup returns the student's last published standing, and stats come
+ * from the ledger's latest snapshot, which is current when the server
+ * starts and is rebuilt in the background after each write, so
+ * {@code /stats} never sorts on a request thread and trails a write only
+ * until its rebuild finishes. An update locks just the
+ * one record it changes.
+ * <p>
+ * Usage: {@code java GradeServer <students file> [port]}, default port
+ * 8080. The server binds to loopback only.
+ */
+public class GradeServer implements Closeable {
+
+    /** Pending connections the listener queues before refusing. */
+    private static final int BACKLOG = 4096;
+
+    /** Largest accepted {@code POST /scores} body. */
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    /** Category weights for loaded students, as in {@code GradesApp}. */
+    private static final double[] WEIGHTS = {0.05, 0.05, 0.15, 0.09, 0.21, 0.2, 0.25};
+
+    private final ConcurrentGradeLedger ledger;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    private GradeServer(ConcurrentGradeLedger ledger, HttpServer server, ExecutorService executor, boolean virtualThreads) {
+        this.ledger = ledger;
+        this.server = server;
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Start serving a ledger.
+     *
+     * @param ledger  class to serve; may still be updated directly
+     * @param address where to listen; port 0 picks a free port
+     * @return running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static GradeServer start(ConcurrentGradeLedger ledger, InetSocketAddress address) throws IOException {
+        // The JDK server writes headers and body separately; without
+        // TCP_NODELAY, Nagle plus delayed ACK adds ~40 ms to every
+        // keep-alive response. The JDK reads this property once, when the
+        // first HttpServer in the JVM is created, so it only takes effect
+        // if no other component has started one before this call.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        ledger.currentSnapshot(); // publish the loaded class before the first /stats
+        ExecutorService virtual = newVirtualThreadExecutor();
+        ExecutorService executor = virtual != null ? virtual : Executors.newCachedThreadPool();
+        HttpServer http = HttpServer.create(address, BACKLOG);
+        GradeServer s = new GradeServer(ledger, http, executor, virtual != null);
+        http.createContext("/", s::handle);
+        http.setExecutor(executor);
+        http.start();
+        return s;
+    }
+
+    /**
+     * Port the server listens on.
+     *
+     * @return bound port
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Whether requests run on virtual threads.
+     *
+     * @return {@code false} if the JVM predates them
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stop listening and wait briefly for requests in flight.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java GradeServer <students file> [port]");
+            System.exit(1);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        Metrics.install();
+        ConcurrentGradeLedger ledger = new ConcurrentGradeLedger();
+        long count = new BatchLoader(WEIGHTS).load(Paths.get(args[0]), ledger::insertRecord);
+        GradeServer s = start(ledger, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        System.out.printf("Serving %d students on http://localhost:%d (%s)%n", count, s.port(),
+                s.usesVirtualThreads() ? "virtual threads" : "thread pool");
+    }
+
+    /* ------------------------- routing ------------------------- */
+
+    private void handle(HttpExchange ex) throws IOException {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        try {
+            String method = ex.getRequestMethod();
+            String path = ex.getRequestURI().getRawPath();
+            if (path.startsWith("/students/")) {
+                if (!method.equals("GET")) {
+                    send(ex, 405, error("use GET"));
+                } else {
+                    student(ex, URI.create(path).getPath().substring("/students/".length()));
+                }
+            } else if (path.equals("/stats")) {
+                if (!method.equals("GET")) send(ex, 405, error("use GET"));
+                else stats(ex);
+            } else if (path.equals("/scores")) {
+                if (!method.equals("POST")) send(ex, 405, error("use POST"));
+                else scores(ex);
+            } else {
+                send(ex, 404, error("no such endpoint: " + path));
+            }
+        } catch (RuntimeException e) {
+            send(ex, 500, error(String.valueOf(e.getMessage())));
+        } finally {
+            ex.close();
+            if (Metrics.ENABLED) Metrics.SERVER_REQUEST.record(t0);
+        }
+    }
+
+    private void student(HttpExchange ex, String gNumber) throws IOException {
+        if (Metrics.ENABLED) Metrics.SERVER_LOOKUPS.increment();
+        ConcurrentGradeLedger.Standing st = ledger.standing(gNumber);
+        if (st == null) {
+            send(ex, 404, error("no student with G# " + gNumber));
+            return;
+        }
+        StringBuilder sb = new StringBuilder(128);
+        putStanding(sb, st);
+        send(ex, 200, sb.append('\n').toString());
+    }
+
+    private void stats(HttpExchange ex) throws IOException {
+        if (Metrics.ENABLED) Metrics.SERVER_STATS.increment();
+        ConcurrentGradeLedger.Snapshot snap = ledger.snapshot();
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"count\":").append(snap.size());
+        sb.append(",\"average\":");
+        putNumber(sb, snap.size() == 0 ? Double.NaN : snap.classAverage());
+        sb.append(",\"max\":");
+        putStanding(sb, snap.highest());
+        sb.append(",\"median\":");
+        putStanding(sb, snap.median());
+        sb.append(",\"min\":");
+        putStanding(sb, snap.lowest());
+        send(ex, 200, sb.append("}\n").toString());
+    }
+
+    private void scores(HttpExchange ex) throws IOException {
+        if (Metrics.ENABLED) Metrics.SERVER_UPDATES.increment();
+        String body = readBody(ex.getRequestBody());
+        if (body == null) {
+            send(ex, 413, error("body over " + MAX_BODY_BYTES + " bytes"));
+            return;
+        }
+        DeltaApplier.Change change = new DeltaApplier.Change();
+        String[] outcome = new String[1];
+        long applied = 0;
+        long rejected = 0;
+        StringBuilder rejections = new StringBuilder();
+        long lineNo = 0;
+        for (String line : body.split("\n", -1)) {
+            lineNo++;
+            if (ScoreParser.isBlankOrComment(line)) continue;
+            String error = change.parse(line, lineNo);
+            if (error == null) {
+                if (ledger.update(change.gNumber(), r -> outcome[0] = change.applyTo(r))) {
+                    error = outcome[0];
+                } else {
+                    error = "no student with G# " + change.gNumber();
+                }
+            }
+            if (error == null) {
+                applied++;
+            } else {
+                if (rejected++ > 0) rejections.append(',');
+                putString(rejections, "line " + lineNo + ": " + error);
+            }
+        }
+        StringBuilder sb = new StringBuilder(64 + rejections.length());
+        sb.append("{\"applied\":").append(applied)
+                .append(",\"rejected\":").append(rejected)
+                .append(",\"rejections\":[").append(rejections).append("]}\n");
+        send(ex, rejected > 0 && applied == 0 ? 400 : 200, sb.toString());
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Executor that starts a virtual thread per task, looked up
+     * reflectively so the sources still build on Java 17.
+     *
+     * @return the executor, or {@code null} before Java 21
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            if (out.size() + n > MAX_BODY_BYTES) return null;
+            out.write(chunk, 0, n);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", JSON);
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        putString(sb, message);
+        return sb.append("}\n").toString();
+    }
+
+    private static void putStanding(StringBuilder sb, ConcurrentGradeLedger.Standing st) {
+        if (st == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append("{\"name\":");
+        putString(sb, st.getStudentName());
+        sb.append(",\"gNumber\":");
+        putString(sb, st.getGNumber());
+        sb.append(",\"total\":");
+        putNumber(sb, st.totalScore());
+        sb.append(",\"letter\":");
+        putString(sb, st.letterGrade());
+        sb.append('}');
+    }
+
+    /** Two decimals, as in {@code ReportWriter}'s JSON; NaN and infinities as null. */
+    private static void putNumber(StringBuilder sb, double v) {
+        if (Double.isFinite(v)) sb.append(String.format(Locale.ROOT, "%.2f", v));
+        else sb.append("null");
+    }
+
+    private static void putString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
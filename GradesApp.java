@@ -1,11 +1,44 @@
 // GradesApp.java
 
+import java.util.Map;
 import java.util.Scanner;
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class GradesApp {
     public static void main(String[] args){
         double[] gradeWeights = {0.05, 0.05, 0.15, 0.09, 0.21, 0.2, 0.25};
+        Metrics.install();
+        if (args.length > 1 && args[0].equals("--batch")) {
+            runBatch(Paths.get(args[1]), args.length > 2 ? Paths.get(args[2]) : null, gradeWeights);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("--apply")) {
+            runApply(Paths.get(args[1]), Paths.get(args[2]), gradeWeights);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--stream")) {
+            runStream(Paths.get(args[1]), gradeWeights);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("--report")) {
+            runReport(args[1], Paths.get(args[2]), gradeWeights);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--final-needed")) {
+            runFinalNeeded(Paths.get(args[1]), gradeWeights);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--sections")) {
+            runSections(Paths.get(args[1]), gradeWeights);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--snapshot")) {
+            runSnapshot(Paths.get(args[1]), args.length > 2 ? args[2] : null);
+            return;
+        }
         try{
             String msg =
 			"┌──────────────────────────────────────────────────────────────┐\n" +
@@ -56,48 +89,317 @@ public class GradesApp {
             String listLine;
             System.out.print("Enter a list of scores (out of 100) for the projects, separated by commas: ");
             listLine = input.nextLine();
-            for (String token : listLine.split(",")) {
-                gradeBook.addProject(Double.parseDouble(token.trim()));
-            }
+            ScoreParser.parseList(listLine, 3, gradeBook::addProject);
 
             // -------------------- Exercises -------------------
             System.out.print("Enter a list of scores (out of 100) for the exercises, separated by commas: ");
             listLine = input.nextLine();
-            for (String token : listLine.split(",")) {
-                gradeBook.addExercise(Double.parseDouble(token.trim()));
-            }
+            ScoreParser.parseList(listLine, 4, gradeBook::addExercise);
 
             // -------------------- Labs ------------------------
             System.out.print("Enter a list of scores (out of 100) for the labs, separated by commas: ");
             listLine = input.nextLine();
-            for (String token : listLine.split(",")) {
-                gradeBook.addLab(Double.parseDouble(token.trim()));
-            }
+            ScoreParser.parseList(listLine, 5, gradeBook::addLab);
 
             // -------------------- Readings --------------------
             System.out.print("Enter a list of scores (out of 100) for the readings, separated by commas: ");
             listLine = input.nextLine();
-            for (String token : listLine.split(",")) {
-                gradeBook.addReading(Double.parseDouble(token.trim()));
-            }
+            ScoreParser.parseList(listLine, 6, gradeBook::addReading);
 
             // -------------------- Participation ---------------
             System.out.print("Enter participation: ");
-            gradeBook.setParticipation(Double.parseDouble(input.nextLine()));
+            gradeBook.setParticipation(ScoreParser.parseScore(input.nextLine(), 7));
 
             // -------------------- Midterm ---------------------
             System.out.print("Enter a score for the midterm: ");
-            gradeBook.setMidterm(Double.parseDouble(input.nextLine()));
+            gradeBook.setMidterm(ScoreParser.parseScore(input.nextLine(), 8));
 
             // -------------------- Final -----------------------
             System.out.print("Enter a score for the final exam: ");
-            gradeBook.setFinalExam(Double.parseDouble(input.nextLine()));
+            gradeBook.setFinalExam(ScoreParser.parseScore(input.nextLine(), 9));
 
             // Output
             System.out.println("Grades");
             System.out.println(gradeBook);
+        } catch (ScoreFormatException e) {
+            System.err.println();
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Batch mode: stream every student in the file into one ledger and
+     * report the class stats plus load throughput.
+     *
+     * @param file     block-layout or .csv file of students
+     * @param snapshot where to save a binary snapshot, or {@code null}
+     * @param weights  category weights for every record
+     */
+    private static void runBatch(Path file, Path snapshot, double[] weights) {
+        try {
+            GradeLedger ledger = new GradeLedger();
+            long start = System.nanoTime();
+            long count = new BatchLoader(weights).load(file, ledger);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Loaded %d records in %.3f s (%.0f records/s)%n",
+                    count, seconds, count / Math.max(seconds, 1e-9));
+            printSummary(ledger);
+
+            if (snapshot != null) {
+                LedgerSnapshot.save(ledger, snapshot);
+                System.out.println("Saved snapshot to " + snapshot);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Apply mode: load a class, apply a file of score changes to it, and
+     * report the counts, the time per million changes and the new stats.
+     *
+     * @param file    block-layout or .csv file of students
+     * @param deltas  change file, see {@code DeltaApplier}
+     * @param weights category weights for every record
+     */
+    private static void runApply(Path file, Path deltas, double[] weights) {
+        try {
+            GradeLedger ledger = new GradeLedger();
+            new BatchLoader(weights).load(file, ledger);
+            DeltaApplier.Result result = new DeltaApplier(ledger).apply(deltas);
+
+            System.out.printf("Applied %d changes, rejected %d, in %.3f s (%.3f s per million)%n",
+                    result.applied(), result.rejected(), result.seconds(), result.secondsPerMillion());
+            for (String message : result.rejections()) System.out.println("  rejected " + message);
+            if (result.rejected() > result.rejections().size()) {
+                System.out.println("  ... " + (result.rejected() - result.rejections().size()) + " more");
+            }
+            printSummary(ledger);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Stream mode: grade every student in the file without keeping the
+     * records, for files too large for memory. The median and deciles are
+     * approximate.
+     *
+     * @param file    block-layout or .csv file of students
+     * @param weights category weights for every record
+     */
+    private static void runStream(Path file, double[] weights) {
+        try {
+            LedgerSketch sketch = new LedgerSketch();
+            long start = System.nanoTime();
+            long count = new BatchLoader(weights).load(file, sketch::insertRecord);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Streamed %d records in %.3f s (%.0f records/s)%n",
+                    count, seconds, count / Math.max(seconds, 1e-9));
+            System.out.println("Max:    " + describe(sketch.highestRecord()));
+            System.out.println("Median: " + (sketch.size() == 0 ? "—" : String.format("~%.2f", sketch.medianTotal())));
+            System.out.println("Avg:    " + (sketch.size() == 0 ? "—" : String.format("%.2f", sketch.classAverage())));
+            System.out.println("Min:    " + describe(sketch.lowestRecord()));
+            if (sketch.size() > 0) printDistribution(sketch.stats());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Report mode: load every student in the file and stream a full report
+     * to standard output.
+     *
+     * @param format  {@code text}, {@code csv} or {@code jsonl}
+     * @param file    block-layout or .csv file of students
+     * @param weights category weights for every record
+     */
+    private static void runReport(String format, Path file, double[] weights) {
+        if (!format.equals("text") && !format.equals("csv") && !format.equals("jsonl")) {
+            System.err.println("Unknown report format: " + format + " (expected text, csv or jsonl)");
+            System.exit(1);
+        }
+        try {
+            GradeLedger ledger = new GradeLedger();
+            new BatchLoader(weights).load(file, ledger);
+            ReportWriter out = ReportWriter.of(System.out);
+            if (format.equals("csv")) {
+                out.writeCsv(ledger);
+            } else if (format.equals("jsonl")) {
+                out.writeJsonLines(ledger);
+            } else {
+                out.writeText(ledger);
+            }
+            out.flush();
+            if (format.equals("text")) System.out.println();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Final-needed mode: load every student in the file and print, as
+     * CSV, the lowest final exam score that earns each letter or better.
+     *
+     * @param file    block-layout or .csv file of students
+     * @param weights category weights for every record
+     */
+    private static void runFinalNeeded(Path file, double[] weights) {
+        try {
+            GradeLedger ledger = new GradeLedger();
+            new BatchLoader(weights).load(file, ledger);
+            ReportWriter out = ReportWriter.of(System.out);
+            out.writeFinalNeededCsv(new FinalExamSolver().solveAll(ledger));
+            out.flush();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sections mode: load every section listed in a manifest into a
+     * {@code ShardedLedger}, each with its own weights, and print stats
+     * per section, per course and for the whole department.
+     * <p>
+     * Manifest lines are {@code course, section, file[, 7 weights]};
+     * files are relative to the manifest, sections without weights use
+     * the defaults, and blank and {@code #} lines are skipped.
+     *
+     * @param manifest section list
+     * @param weights  default category weights
+     */
+    private static void runSections(Path manifest, double[] weights) {
+        try {
+            ShardedLedger department = new ShardedLedger();
+            Path dir = manifest.toAbsolutePath().getParent();
+            long start = System.nanoTime();
+            long lineNo = 0;
+            for (String line : Files.readAllLines(manifest)) {
+                lineNo++;
+                if (ScoreParser.isBlankOrComment(line)) continue;
+                String[] f = line.split(",");
+                if (f.length != 3 && f.length != 3 + weights.length) {
+                    throw new IllegalArgumentException("line " + lineNo + ": expected course, section, file and optionally "
+                            + weights.length + " weights");
+                }
+                double[] w = weights;
+                if (f.length > 3) {
+                    w = new double[weights.length];
+                    for (int i = 0; i < w.length; i++) w[i] = ScoreParser.parseScore(f[3 + i], lineNo);
+                }
+                ShardedLedger.Section section = department.addSection(f[0].trim(), f[1].trim(), w);
+                new BatchLoader(w).load(dir.resolve(f[2].trim()), section::insertRecord);
+            }
+            double loadSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            Map<String, LedgerStats> byCourse = department.statsByCourse();
+            LedgerStats all = department.departmentStats();
+            double statsSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Loaded %d records in %d sections of %d courses in %.3f s; stats in %.3f s%n",
+                    department.size(), department.sectionCount(), byCourse.size(), loadSeconds, statsSeconds);
+            for (Map.Entry<String, LedgerStats> course : byCourse.entrySet()) {
+                System.out.println(describe(course.getKey(), course.getValue()));
+                for (ShardedLedger.Section section : department.sections(course.getKey())) {
+                    System.out.println("  " + describe(section.name(),
+                            department.sectionStats(course.getKey(), section.name())));
+                }
+            }
+            System.out.println(describe("Department", all));
+            if (all.count() > 0) printDistribution(all);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Input error: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Snapshot mode: map a saved ledger and print its stats, or one student.
+     *
+     * @param file    snapshot written by batch mode
+     * @param gNumber student to show, or {@code null} for class stats
+     */
+    private static void runSnapshot(Path file, String gNumber) {
+        try {
+            LedgerSnapshot snap = LedgerSnapshot.open(file);
+            if (gNumber != null) {
+                int index = snap.find(gNumber);
+                if (index < 0) {
+                    System.err.println("No student with G# " + gNumber);
+                    System.exit(1);
+                }
+                System.out.println(snap.record(index));
+                return;
+            }
+            System.out.println("Students: " + snap.size());
+            System.out.println("Max:    " + describe(snap, snap.highestIndex()));
+            System.out.println("Median: " + describe(snap, snap.medianIndex()));
+            System.out.println("Avg:    " + (snap.size() == 0 ? "—" : String.format("%.2f", snap.classAverage())));
+            System.out.println("Min:    " + describe(snap, snap.lowestIndex()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String describe(LedgerSnapshot snap, int index) {
+        if (index < 0) return "—";
+        return String.format("%s (Letter: %s, Total: %.2f)",
+                snap.studentName(index), snap.letterGrade(index), snap.totalScore(index));
+    }
+
+    private static String describe(String label, LedgerStats stats) {
+        if (stats.count() == 0) return label + ": no students";
+        return String.format("%s: %d students, avg %.2f, min %.2f, max %.2f", label, stats.count(),
+                stats.average(), stats.lowest().totalScore(), stats.highest().totalScore());
+    }
+
+    private static void printSummary(GradeLedger ledger) {
+        System.out.println("Max:    " + describe(ledger.highestRecord()));
+        System.out.println("Median: " + describe(ledger.medianRecord()));
+        System.out.println("Avg:    " + (ledger.size() == 0 ? "—" : String.format("%.2f", ledger.classAverage())));
+        System.out.println("Min:    " + describe(ledger.lowestRecord()));
+        if (ledger.size() > 0) printDistribution(ledger.stats());
+    }
+
+    private static void printDistribution(LedgerStats stats) {
+        System.out.printf("Std dev: %.2f%n", stats.standardDeviation());
+        StringBuilder deciles = new StringBuilder("Deciles:");
+        for (int k = 1; k < 10; k++) deciles.append(String.format(" %.1f", stats.decile(k)));
+        System.out.println(deciles);
+        StringBuilder letters = new StringBuilder("Letters:");
+        for (String letter : LedgerStats.LETTERS) {
+            long n = stats.letterCount(letter);
+            if (n > 0) letters.append(' ').append(letter).append('=').append(n);
+        }
+        System.out.println(letters);
+    }
+
+    private static String describe(StudentRecord r) {
+        if (r == null) return "—";
+        return String.format("%s (Letter: %s, Total: %.2f)",
+                r.getStudentName(), r.letterGrade(), r.totalScore());
+    }
 }
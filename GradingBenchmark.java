@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.SplittableRandom;
+
+/**
+ * Micro-benchmark suite for the grading and ledger hot paths: record
+ * construction, totals and letters, drop-lowest readings, ledger stats,
+ * leaderboards, delta ingestion, what-if weight scenarios and report rendering, on synthetic ledgers of several sizes.
+ * <p>
+ * Usage: {@code java -Xmx<heap> GradingBenchmark [size ...]}, default
+ * sizes 1000 and 100000. Ten million students need roughly 8 GB of heap.
+ * Each benchmark runs warm-up rounds first, then reports the mean over the
+ * measured rounds as latency (ns/op), throughput (ops/s) and allocation
+ * (bytes/op and MB/s, calling thread only).
+ */
+public class GradingBenchmark {
+
+    private static final long SEED = 42L;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    /** Whole-ledger {@code toString()} is skipped above this size. */
+    private static final int MAX_RENDER_SIZE = 1_000_000;
+
+    /** Per-student rendering samples at most this many records. */
+    private static final int RENDER_SAMPLE = 100_000;
+
+    /** Number of single-record updates per stats-after-update round. */
+    private static final int UPDATES = 1_000;
+
+    /** Number of weight vectors per what-if scenario run. */
+    private static final int SCENARIOS = 24;
+
+    /** Lines per delta-file run. */
+    private static final int DELTAS = 100_000;
+
+    /** Leaderboard page size. */
+    private static final int PAGE = 20;
+
+    /** Keeps results alive so the JIT cannot drop the work. */
+    private static volatile Object sink;
+    private static double doubleSink;
+
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 100_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i].replace("_", ""));
+        }
+        System.out.printf("%-34s %14s %14s %12s %12s%n", "benchmark", "ns/op", "ops/s", "B/op", "alloc MB/s");
+        for (int n : sizes) runSuite(n);
+        sink = doubleSink;
+    }
+
+    /* ------------------------- suite ------------------------- */
+
+    private static void runSuite(int n) {
+        System.out.println();
+        System.out.println("== " + n + " students ==");
+
+        bench("construct StudentRecord", n, () -> sink = SyntheticLedger.students(n, SEED));
+        StudentRecord[] recs = SyntheticLedger.students(n, SEED);
+        double[] weights = SyntheticLedger.WEIGHTS;
+
+        bench("totalScore (recompute)", n, () -> {
+            double sum = 0.0;
+            for (StudentRecord r : recs) {
+                r.setWeights(weights);
+                sum += r.totalScore();
+            }
+            doubleSink += sum;
+        });
+        bench("totalScore (cached)", n, () -> {
+            double sum = 0.0;
+            for (StudentRecord r : recs) sum += r.totalScore();
+            doubleSink += sum;
+        });
+        bench("letterGrade (recompute)", n, () -> {
+            int len = 0;
+            for (StudentRecord r : recs) {
+                r.setWeights(weights);
+                len += r.letterGrade().length();
+            }
+            doubleSink += len;
+        });
+        bench("addReading + readings mean", n, () -> {
+            double sum = 0.0;
+            for (StudentRecord r : recs) {
+                r.addReading(80.0);
+                sum += r.unweightedReadingsScore();
+            }
+            doubleSink += sum;
+        });
+
+        bench("build GradeLedger", n, () -> sink = SyntheticLedger.ledger(n, SEED));
+        GradeLedger ledger = SyntheticLedger.ledger(n, SEED);
+        StudentRecord[] members = ledger.getRecords().toArray(new StudentRecord[0]);
+
+        bench("highest + lowest + median", UPDATES, () -> {
+            for (int i = 0; i < UPDATES; i++) {
+                sink = ledger.highestRecord();
+                sink = ledger.lowestRecord();
+                sink = ledger.medianRecord();
+            }
+        });
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        bench("addLab then medianRecord", UPDATES, () -> {
+            for (int i = 0; i < UPDATES; i++) {
+                members[rnd.nextInt(members.length)].addLab(rnd.nextInt(101));
+                sink = ledger.medianRecord();
+            }
+        });
+        bench("top/bottom " + PAGE + " by total", UPDATES, () -> {
+            for (int i = 0; i < UPDATES; i++) {
+                sink = ledger.top(0, PAGE);
+                sink = ledger.bottom(0, PAGE);
+            }
+        });
+        bench("top " + PAGE + " by final (heap)", 1, () -> sink = ledger.top(ScoreKey.FINAL, 0, PAGE));
+        bench("bottom " + PAGE + " by labs (heap)", 1, () -> sink = ledger.bottom(ScoreKey.LABS, 0, PAGE));
+        String deltas = deltas(n, DELTAS);
+        bench("DeltaApplier (per change)", DELTAS, () -> {
+            try {
+                sink = new DeltaApplier(ledger).apply(new StringReader(deltas));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        bench("classAverage", 1, () -> doubleSink += ledger.classAverage());
+        bench("stats()", 1, () -> sink = ledger.stats());
+        bench("parallelStats()", 1, () -> sink = ledger.parallelStats());
+
+        double[][] scenarios = scenarios(SCENARIOS);
+        WeightScenarios engine = WeightScenarios.of(ledger);
+        bench("WeightScenarios x" + SCENARIOS + " (per student)", n, () -> sink = engine.evaluate(scenarios));
+        bench("parallel WeightScenarios x" + SCENARIOS, n, () -> sink = engine.parallelEvaluate(scenarios));
+
+        FinalExamSolver solver = new FinalExamSolver();
+        bench("FinalExamSolver one by one", n, () -> {
+            for (StudentRecord r : members) sink = solver.neededFinals(r);
+        });
+        bench("FinalExamSolver.solveAll (parallel)", n, () -> sink = solver.solveAll(ledger));
+
+        int sample = Math.min(n, RENDER_SAMPLE);
+        bench("StudentRecord.toString", sample, () -> {
+            int len = 0;
+            for (int i = 0; i < sample; i++) len += members[i].toString().length();
+            doubleSink += len;
+        });
+        if (n <= MAX_RENDER_SIZE) {
+            bench("GradeLedger.toString", 1, () -> sink = ledger.toString());
+        } else {
+            System.out.printf("%-34s skipped above %d students%n", "GradeLedger.toString", MAX_RENDER_SIZE);
+        }
+        bench("ReportWriter text (per student)", n, () -> report(ledger, "text"));
+        bench("ReportWriter csv (per student)", n, () -> report(ledger, "csv"));
+        bench("ReportWriter jsonl (per student)", n, () -> report(ledger, "jsonl"));
+    }
+
+    /**
+     * Stream a report to a discarding writer, so only formatting is timed.
+     */
+    private static void report(GradeLedger ledger, String format) {
+        try {
+            ReportWriter out = new ReportWriter(Writer.nullWriter());
+            if (format.equals("csv")) out.writeCsv(ledger);
+            else if (format.equals("jsonl")) out.writeJsonLines(ledger);
+            else out.writeText(ledger);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A delta file of random adds, final-exam sets and replaces against
+     * the synthetic students.
+     */
+    private static String deltas(int students, int count) {
+        String[] buckets = {"reading", "lab", "exercise", "project"};
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        StringBuilder sb = new StringBuilder(count * 40);
+        for (int i = 0; i < count; i++) {
+            sb.append(SyntheticLedger.gNumber(rnd.nextInt(students))).append(", ");
+            switch (rnd.nextInt(3)) {
+                case 0:
+                    sb.append(buckets[rnd.nextInt(4)]).append(", add, ").append(rnd.nextInt(101));
+                    break;
+                case 1:
+                    sb.append("final, set, ").append(rnd.nextInt(101));
+                    break;
+                default:
+                    // every synthetic student has at least three scores per list
+                    sb.append(buckets[rnd.nextInt(4)]).append(", replace, ").append(rnd.nextInt(101))
+                            .append(", ").append(1 + rnd.nextInt(3));
+                    break;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Random weight vectors near the defaults.
+     */
+    private static double[][] scenarios(int count) {
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        double[][] out = new double[count][];
+        for (int s = 0; s < count; s++) {
+            out[s] = SyntheticLedger.WEIGHTS.clone();
+            for (int i = 0; i < out[s].length; i++) out[s][i] *= 0.5 + rnd.nextDouble();
+        }
+        return out;
+    }
+
+    /* ------------------------- harness ------------------------- */
+
+    /**
+     * Run {@code body} (which performs {@code ops} operations) through
+     * warm-up and measured rounds and print the per-op means.
+     */
+    private static void bench(String name, long ops, Runnable body) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) body.run();
+
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            body.run();
+            nanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - bytesBefore;
+        }
+        double nsPerOp = (double) nanos / MEASURED_ROUNDS / ops;
+        double bytesPerOp = (double) bytes / MEASURED_ROUNDS / ops;
+        double mbPerSec = nanos == 0 ? 0.0 : bytes / (nanos / 1e9) / (1 << 20);
+        System.out.printf("%-34s %14.1f %14.0f %12.1f %12.1f%n",
+                name, nsPerOp, 1e9 / nsPerOp, bytesPerOp, mbPerSec);
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or 0 if the JVM
+     * does not report it.
+     *
+     * @return allocated bytes
+     */
+    static long allocatedBytes() {
+        return Metrics.allocatedBytes();
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Bounded-memory stand-in for a {@code GradeLedger} when a class is too
+ * large to keep every record: each record is graded once as it is
+ * inserted and can then be discarded.
+ * <p>
+ * Count, average, standard deviation, letter counts and the lowest and
+ * highest record are exact ({@code LedgerStats}). Median and other
+ * percentiles of totals come from a {@code QuantileSketch}, so they are
+ * approximate; memory stays a few thousand values regardless of class
+ * size. Sketches built over separate sections or files merge.
+ */
+public class LedgerSketch {
+
+    private final LedgerStats stats = new LedgerStats();
+    private final QuantileSketch totals;
+
+    /**
+     * Build an empty sketch with the default accuracy.
+     */
+    public LedgerSketch() {
+        this(QuantileSketch.DEFAULT_K);
+    }
+
+    /**
+     * Build an empty sketch.
+     *
+     * @param k quantile accuracy parameter; see {@code QuantileSketch}
+     */
+    public LedgerSketch(int k) {
+        this.totals = new QuantileSketch(k);
+    }
+
+    /**
+     * Grade one student into the summary. Unlike {@code GradeLedger}, a
+     * repeated G# is counted again, and later changes to the record are
+     * not seen.
+     *
+     * @param entry grades for one student
+     */
+    public void insertRecord(StudentRecord entry) {
+        stats.accept(entry);
+        totals.add(entry.totalScore());
+    }
+
+    /**
+     * Fold in a sketch over students inserted after these.
+     *
+     * @param later sketch for the following students
+     * @return this, updated
+     */
+    public LedgerSketch merge(LedgerSketch later) {
+        stats.merge(later.stats);
+        totals.merge(later.totals);
+        return this;
+    }
+
+    /**
+     * Number of students inserted.
+     *
+     * @return record count
+     */
+    public long size() {
+        return stats.count();
+    }
+
+    /**
+     * Mean of all totals.
+     *
+     * @return exact average, or 0.0 if empty
+     */
+    public double classAverage() {
+        return stats.average();
+    }
+
+    /**
+     * Highest-scoring student; the earliest inserted wins a tie.
+     *
+     * @return record with the greatest total, or {@code null} if empty
+     */
+    public StudentRecord highestRecord() {
+        return stats.highest();
+    }
+
+    /**
+     * Lowest-scoring student; the earliest inserted wins a tie.
+     *
+     * @return record with the smallest total, or {@code null} if empty
+     */
+    public StudentRecord lowestRecord() {
+        return stats.lowest();
+    }
+
+    /**
+     * Approximate median total, at the rank {@code GradeLedger.medianRecord}
+     * uses (0-based floor of the middle).
+     *
+     * @return approximate median, or {@code NaN} if empty
+     */
+    public double medianTotal() {
+        long n = totals.count();
+        return n == 0 ? Double.NaN : totals.valueAtRank(n / 2);
+    }
+
+    /**
+     * Approximate total at a percentile by nearest rank.
+     *
+     * @param p percentile, 0 to 100
+     * @return approximate total, or {@code NaN} if empty
+     */
+    public double percentile(double p) {
+        return totals.percentile(p);
+    }
+
+    /**
+     * Approximate share of the class scoring strictly below a total.
+     *
+     * @param total total to rank
+     * @return percentile rank 0 to 100, or 0.0 if empty
+     */
+    public double percentileRank(double total) {
+        return totals.percentileRank(total);
+    }
+
+    /**
+     * Exact statistics over every inserted student.
+     *
+     * @return the running statistics (live, not a copy)
+     */
+    public LedgerStats stats() {
+        return stats;
+    }
+
+    /**
+     * The sketch of totals.
+     *
+     * @return the quantile sketch (live, not a copy)
+     */
+    public QuantileSketch totals() {
+        return totals;
+    }
+}
@@ -0,0 +1,559 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of a {@code GradeLedger}, read back through
+ * memory-mapped buffers.
+ * <p>
+ * Opening a snapshot maps the file and reads only its header; names,
+ * totals and scores are decoded on demand, so stats and G# lookups are
+ * served without building any {@code StudentRecord}.
+ * <p>
+ * Layout (version 2, big-endian; each section must stay under 2 GB, and
+ * {@link #save(GradeLedger, Path)} rejects a ledger that would not):
+ * <pre>
+ * header   magic "GLSN", version, recordCount, policyCount,
+ *          section offsets (policies, records, scores, byTotal, byGNumber, strings),
+ *          class average
+ * policies 7 weights (double) + 4 drop counts (int) + 10 letter floors and
+ *          ceiling (double), per distinct policy
+ * records  fixed 80-byte rows: name, G# (string-table offsets), policy,
+ *          participation, midterm, final, total,
+ *          (start, count) into the score column for readings, labs, exercises, projects
+ * scores   every bucket score as a double, row after row
+ * byTotal  record indices ordered by total (ties in ledger order)
+ * byGNumber record indices ordered by G#
+ * strings  length-prefixed UTF-8; offset -1 encodes null
+ * </pre>
+ * Version 1 files, whose policies stop after the drop counts, still open;
+ * their records use {@code LetterScale.DEFAULT}.
+ */
+public class LedgerSnapshot {
+
+    /** "GLSN" */
+    private static final int MAGIC = 0x474C534E;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 72;
+    private static final int POLICY_BYTES_V1 = StudentRecord.WEIGHT_COUNT * 8 + 4 * 4;
+    private static final int POLICY_BYTES = POLICY_BYTES_V1 + (LetterScale.FLOOR_COUNT + 1) * 8;
+    private static final int RECORD_BYTES = 80;
+
+    /* record row field offsets */
+    private static final int R_NAME = 0;
+    private static final int R_GNUMBER = 4;
+    private static final int R_POLICY = 8;
+    private static final int R_PARTICIPATION = 16;
+    private static final int R_MIDTERM = 24;
+    private static final int R_FINAL = 32;
+    private static final int R_TOTAL = 40;
+    private static final int R_BUCKETS = 48;
+
+    private final int recordCount;
+    private final double classAverage;
+    private final int policyBytes;
+    private final LetterScale[] scales;
+    private final ByteBuffer policies;
+    private final ByteBuffer records;
+    private final ByteBuffer scores;
+    private final ByteBuffer byTotal;
+    private final ByteBuffer byGNumber;
+    private final ByteBuffer strings;
+
+    private LedgerSnapshot(int recordCount, double classAverage, int policyBytes, LetterScale[] scales,
+                           ByteBuffer policies, ByteBuffer records,
+                           ByteBuffer scores, ByteBuffer byTotal, ByteBuffer byGNumber, ByteBuffer strings) {
+        this.recordCount = recordCount;
+        this.classAverage = classAverage;
+        this.policyBytes = policyBytes;
+        this.scales = scales;
+        this.policies = policies;
+        this.records = records;
+        this.scores = scores;
+        this.byTotal = byTotal;
+        this.byGNumber = byGNumber;
+        this.strings = strings;
+    }
+
+    /* ========================== save ========================== */
+
+    /**
+     * Write a ledger to a snapshot file, replacing any existing file.
+     *
+     * @param ledger ledger to save
+     * @param file   destination
+     * @throws IOException           if the file cannot be written
+     * @throws IllegalStateException if a section would reach 2 GB, e.g. more
+     *                               than about 268M scores; nothing is written
+     */
+    public static void save(GradeLedger ledger, Path file) throws IOException {
+        Collection<StudentRecord> source = ledger.getRecords();
+        StudentRecord[] recs = source.toArray(new StudentRecord[0]);
+        int n = recs.length;
+
+        Map<Policy, Integer> policyIds = new HashMap<>();
+        Policy[] policyList = new Policy[Math.max(1, n)];
+        int[] policyOf = new int[n];
+        long scoreCount = 0;
+        long stringBytes = 0;
+        int[] nameOffsets = new int[n];
+        int[] idOffsets = new int[n];
+        double[] totals = new double[n];
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) {
+            Policy p = new Policy(recs[i]);
+            Integer id = policyIds.get(p);
+            if (id == null) {
+                id = policyIds.size();
+                policyIds.put(p, id);
+                policyList[id] = p;
+            }
+            policyOf[i] = id;
+            scoreCount += recs[i].readingBucket().size() + recs[i].labBucket().size()
+                    + recs[i].exerciseBucket().size() + recs[i].projectBucket().size();
+            nameOffsets[i] = recs[i].getStudentName() == null ? -1 : checkedInt(stringBytes, "string table");
+            stringBytes += stringBytes(recs[i].getStudentName());
+            idOffsets[i] = recs[i].getGNumber() == null ? -1 : checkedInt(stringBytes, "string table");
+            stringBytes += stringBytes(recs[i].getGNumber());
+            totals[i] = recs[i].totalScore();
+            ids[i] = recs[i].getGNumber();
+        }
+        int policyCount = policyIds.size();
+        // readers index every section with int offsets
+        checkedInt((long) policyCount * POLICY_BYTES, "policy table");
+        checkedInt((long) n * RECORD_BYTES, "record table");
+        checkedInt(scoreCount * 8, "score column");
+        checkedInt(stringBytes, "string table");
+
+        int[] totalOrder = order(n, (a, b) -> Double.compare(totals[a], totals[b]));
+        int[] idOrder = order(n, (a, b) -> ids[a] == null ? (ids[b] == null ? 0 : -1)
+                : ids[b] == null ? 1 : ids[a].compareTo(ids[b]));
+
+        long policiesAt = HEADER_BYTES;
+        long recordsAt = policiesAt + (long) policyCount * POLICY_BYTES;
+        long scoresAt = recordsAt + (long) n * RECORD_BYTES;
+        long byTotalAt = scoresAt + scoreCount * 8;
+        long byGNumberAt = byTotalAt + (long) n * 4;
+        long stringsAt = byGNumberAt + (long) n * 4;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(policyCount);
+            out.writeLong(policiesAt);
+            out.writeLong(recordsAt);
+            out.writeLong(scoresAt);
+            out.writeLong(byTotalAt);
+            out.writeLong(byGNumberAt);
+            out.writeLong(stringsAt);
+            out.writeDouble(ledger.classAverage());
+
+            for (int p = 0; p < policyCount; p++) {
+                for (double w : policyList[p].weights) out.writeDouble(w);
+                for (int d : policyList[p].drops) out.writeInt(d);
+                for (double f : policyList[p].scale.getFloors()) out.writeDouble(f);
+                out.writeDouble(policyList[p].scale.getCeiling());
+            }
+
+            int scoreIndex = 0;
+            for (int i = 0; i < n; i++) {
+                StudentRecord r = recs[i];
+                out.writeInt(nameOffsets[i]);
+                out.writeInt(idOffsets[i]);
+                out.writeInt(policyOf[i]);
+                out.writeInt(0); // reserved
+                out.writeDouble(r.getParticipation());
+                out.writeDouble(r.getMidterm());
+                out.writeDouble(r.getFinalExam());
+                out.writeDouble(r.totalScore());
+                for (ScoreBucket b : buckets(r)) {
+                    out.writeInt(scoreIndex);
+                    out.writeInt(b.size());
+                    scoreIndex += b.size();
+                }
+            }
+
+            for (StudentRecord r : recs) {
+                for (ScoreBucket b : buckets(r)) {
+                    for (int k = 0; k < b.size(); k++) out.writeDouble(b.get(k));
+                }
+            }
+
+            for (int i : totalOrder) out.writeInt(i);
+            for (int i : idOrder) out.writeInt(i);
+
+            for (StudentRecord r : recs) {
+                writeString(out, r.getStudentName());
+                writeString(out, r.getGNumber());
+            }
+        }
+    }
+
+    /* ========================== load ========================== */
+
+    /**
+     * Map a snapshot file for reading. Only the header is read here.
+     *
+     * @param file snapshot written by {@link #save(GradeLedger, Path)}
+     * @return read-only snapshot
+     * @throws IOException if the file is unreadable or not a supported snapshot
+     */
+    public static LedgerSnapshot open(Path file) throws IOException {
+        return open(file, true);
+    }
+
+    /**
+     * Read a whole snapshot into the heap and rebuild its ledger. Unlike
+     * {@link #open(Path)} nothing stays mapped, so the file can be deleted
+     * or replaced as soon as this returns, even on Windows.
+     *
+     * @param file snapshot written by {@link #save(GradeLedger, Path)}
+     * @return new ledger, in the saved order
+     * @throws IOException if the file is unreadable or not a supported snapshot
+     */
+    public static GradeLedger load(Path file) throws IOException {
+        return open(file, false).toLedger();
+    }
+
+    private static LedgerSnapshot open(Path file, boolean mapped) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) throw new IOException("Not a ledger snapshot: " + file);
+            ByteBuffer h = section(ch, 0, HEADER_BYTES, mapped);
+            if (h.getInt(0) != MAGIC) throw new IOException("Not a ledger snapshot: " + file);
+            int version = h.getInt(4);
+            if (version != VERSION && version != 1) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+
+            int n = h.getInt(8);
+            int policyCount = h.getInt(12);
+            long policiesAt = h.getLong(16);
+            long recordsAt = h.getLong(24);
+            long scoresAt = h.getLong(32);
+            long byTotalAt = h.getLong(40);
+            long byGNumberAt = h.getLong(48);
+            long stringsAt = h.getLong(56);
+            double average = h.getDouble(64);
+
+            int policyBytes = version == 1 ? POLICY_BYTES_V1 : POLICY_BYTES;
+            ByteBuffer policies = section(ch, policiesAt, recordsAt, mapped);
+            LetterScale[] scales = new LetterScale[policyCount];
+            for (int p = 0; p < policyCount; p++) {
+                scales[p] = version == 1 ? LetterScale.DEFAULT : scale(policies, p * policyBytes + POLICY_BYTES_V1);
+            }
+            return new LedgerSnapshot(n, average, policyBytes, scales,
+                    policies,
+                    section(ch, recordsAt, scoresAt, mapped),
+                    section(ch, scoresAt, byTotalAt, mapped),
+                    section(ch, byTotalAt, byGNumberAt, mapped),
+                    section(ch, byGNumberAt, stringsAt, mapped),
+                    section(ch, stringsAt, ch.size(), mapped));
+        }
+    }
+
+    /**
+     * Number of records.
+     *
+     * @return record count
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Student name of a record.
+     *
+     * @param index 0-based record index (ledger insertion order)
+     * @return name
+     */
+    public String studentName(int index) {
+        return string(records.getInt(row(index) + R_NAME));
+    }
+
+    /**
+     * Student G# of a record.
+     *
+     * @param index 0-based record index
+     * @return id string
+     */
+    public String gNumber(int index) {
+        return string(records.getInt(row(index) + R_GNUMBER));
+    }
+
+    /**
+     * Weighted total saved for a record.
+     *
+     * @param index 0-based record index
+     * @return overall numeric score
+     */
+    public double totalScore(int index) {
+        return records.getDouble(row(index) + R_TOTAL);
+    }
+
+    /**
+     * Letter grade of a record.
+     *
+     * @param index 0-based record index
+     * @return letter grade
+     */
+    public String letterGrade(int index) {
+        int at = row(index);
+        LetterScale scale = scales[records.getInt(at + R_POLICY)];
+        return scale.letter(records.getDouble(at + R_TOTAL), records.getDouble(at + R_FINAL) >= 60.0);
+    }
+
+    /**
+     * Binary-search the G# index.
+     *
+     * @param gNumber id to look up
+     * @return record index, or -1 if absent
+     */
+    public int find(String gNumber) {
+        int lo = 0;
+        int hi = recordCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int index = byGNumber.getInt(mid * 4);
+            String probe = gNumber(index);
+            int c = probe == null ? (gNumber == null ? 0 : -1) : (gNumber == null ? 1 : probe.compareTo(gNumber));
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Record at a 0-based rank by total, ascending; ties keep ledger order.
+     *
+     * @param rank rank
+     * @return record index
+     */
+    public int indexAtRank(int rank) {
+        if (rank < 0 || rank >= recordCount) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " out of bounds for size " + recordCount);
+        }
+        return byTotal.getInt(rank * 4);
+    }
+
+    /**
+     * Lowest-scoring record, as {@code GradeLedger.lowestRecord()} picks it.
+     *
+     * @return record index, or -1 if empty
+     */
+    public int lowestIndex() {
+        return recordCount == 0 ? -1 : indexAtRank(0);
+    }
+
+    /**
+     * Highest-scoring record, as {@code GradeLedger.highestRecord()} picks it.
+     *
+     * @return record index, or -1 if empty
+     */
+    public int highestIndex() {
+        if (recordCount == 0) return -1;
+        int rank = recordCount - 1;
+        double top = totalScore(indexAtRank(rank));
+        while (rank > 0 && Double.compare(totalScore(indexAtRank(rank - 1)), top) == 0) rank--;
+        return indexAtRank(rank);
+    }
+
+    /**
+     * Median record, as {@code GradeLedger.medianRecord()} picks it.
+     *
+     * @return record index, or -1 if empty
+     */
+    public int medianIndex() {
+        return recordCount == 0 ? -1 : indexAtRank(recordCount / 2);
+    }
+
+    /**
+     * Mean of all totals, saved with the snapshot.
+     *
+     * @return average total, or 0.0 if empty
+     */
+    public double classAverage() {
+        return classAverage;
+    }
+
+    /**
+     * Build a full {@code StudentRecord} for one entry.
+     *
+     * @param index 0-based record index
+     * @return new record equal to the saved one
+     */
+    public StudentRecord record(int index) {
+        int at = row(index);
+        int policyId = records.getInt(at + R_POLICY);
+        int policy = policyId * policyBytes;
+        double[] weights = new double[StudentRecord.WEIGHT_COUNT];
+        for (int k = 0; k < weights.length; k++) weights[k] = policies.getDouble(policy + k * 8);
+        int drops = policy + StudentRecord.WEIGHT_COUNT * 8;
+
+        StudentRecord rec = new StudentRecord(studentName(index), gNumber(index), weights);
+        rec.setReadingDrops(policies.getInt(drops));
+        rec.setLabDrops(policies.getInt(drops + 4));
+        rec.setExerciseDrops(policies.getInt(drops + 8));
+        rec.setProjectDrops(policies.getInt(drops + 12));
+        rec.setLetterScale(scales[policyId]);
+        rec.addReadings(scores(at, 0));
+        rec.addLabs(scores(at, 1));
+        rec.addExercises(scores(at, 2));
+        rec.addProjects(scores(at, 3));
+        rec.setParticipation(records.getDouble(at + R_PARTICIPATION));
+        rec.setMidterm(records.getDouble(at + R_MIDTERM));
+        rec.setFinalExam(records.getDouble(at + R_FINAL));
+        return rec;
+    }
+
+    /**
+     * Rebuild every record into a live ledger, in the saved order.
+     *
+     * @return new ledger
+     */
+    public GradeLedger toLedger() {
+        GradeLedger ledger = new GradeLedger();
+        for (int i = 0; i < recordCount; i++) ledger.insertRecord(record(i));
+        return ledger;
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private int row(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + recordCount);
+        }
+        return index * RECORD_BYTES;
+    }
+
+    private double[] scores(int rowAt, int bucket) {
+        int start = records.getInt(rowAt + R_BUCKETS + bucket * 8);
+        int count = records.getInt(rowAt + R_BUCKETS + bucket * 8 + 4);
+        double[] out = new double[count];
+        for (int k = 0; k < count; k++) out[k] = scores.getDouble((start + k) * 8);
+        return out;
+    }
+
+    private String string(int offset) {
+        if (offset < 0) return null;
+        int length = strings.getInt(offset);
+        byte[] bytes = new byte[length];
+        strings.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LetterScale scale(ByteBuffer policies, int at) {
+        double[] floors = new double[LetterScale.FLOOR_COUNT];
+        for (int k = 0; k < floors.length; k++) floors[k] = policies.getDouble(at + k * 8);
+        return new LetterScale(floors, policies.getDouble(at + floors.length * 8));
+    }
+
+    /**
+     * File bytes {@code [from, to)}, mapped or copied into the heap.
+     */
+    private static ByteBuffer section(FileChannel ch, long from, long to, boolean mapped) throws IOException {
+        if (mapped) return ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        ByteBuffer buf = ByteBuffer.allocate(checkedInt(to - from, "section"));
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, from + buf.position()) < 0) throw new EOFException("Truncated ledger snapshot");
+        }
+        return buf.flip();
+    }
+
+    private static ScoreBucket[] buckets(StudentRecord r) {
+        return new ScoreBucket[] {r.readingBucket(), r.labBucket(), r.exerciseBucket(), r.projectBucket()};
+    }
+
+    /**
+     * Compares two record indices.
+     */
+    private interface IndexOrder {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Record indices sorted by {@code by}; equal records keep ledger order.
+     */
+    private static int[] order(int n, IndexOrder by) {
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++) idx[i] = i;
+        sort(idx, new int[n], by, 0, n);
+        return idx;
+    }
+
+    /**
+     * Stable merge sort of indices, without boxing.
+     */
+    private static void sort(int[] a, int[] tmp, IndexOrder by, int lo, int hi) {
+        if (hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        sort(a, tmp, by, lo, mid);
+        sort(a, tmp, by, mid, hi);
+        if (by.compare(a[mid - 1], a[mid]) <= 0) return;
+        System.arraycopy(a, lo, tmp, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (j >= hi || (i < mid && by.compare(tmp[i], tmp[j]) <= 0)) a[k] = tmp[i++];
+            else a[k] = tmp[j++];
+        }
+    }
+
+    private static long stringBytes(String s) {
+        if (s == null) return 0;
+        return 4 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) return;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int checkedInt(long bytes, String section) {
+        if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("Snapshot " + section + " exceeds 2 GB");
+        return (int) bytes;
+    }
+
+    /**
+     * Weights, drop counts and letter scale shared by many records.
+     */
+    private static final class Policy {
+        final double[] weights;
+        final int[] drops;
+        final LetterScale scale;
+
+        Policy(StudentRecord r) {
+            this.weights = r.getWeights();
+            this.drops = new int[] {r.getReadingDrops(), r.getLabDrops(), r.getExerciseDrops(), r.getProjectDrops()};
+            this.scale = r.getLetterScale();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Policy)) return false;
+            Policy p = (Policy) o;
+            return Arrays.equals(weights, p.weights) && Arrays.equals(drops, p.drops) && scale.equals(p.scale);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(weights) + Arrays.hashCode(drops)) + scale.hashCode();
+        }
+    }
+}
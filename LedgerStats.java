@@ -0,0 +1,305 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Mergeable class statistics: count, sum/average, standard deviation,
+ * lowest and highest record, a count per letter grade, and a one-point
+ * histogram of totals that answers deciles and other percentiles.
+ * <p>
+ * Partials are built over fixed-size index ranges and merged in a fixed
+ * left-to-right tree, so the parallel and sequential reductions add the
+ * same numbers in the same order and return identical results. Partials
+ * for separate sections merge the same way.
+ */
+public class LedgerStats {
+
+    /**
+     * Letters in reporting order; {@link #letterCount(String)} accepts these.
+     */
+    public static final String[] LETTERS = {
+        "A+", "A", "A-", "B+", "B", "B-", "C+", "C", "C-", "D", "F", "Not Within Range"
+    };
+
+    /**
+     * Records per leaf range; below this a range is reduced in one loop.
+     */
+    private static final int LEAF_SIZE = 4096;
+
+    /**
+     * Histogram bins: one per point over [0, 100]; 100 falls in the last.
+     */
+    private static final int BINS = 100;
+
+    private long count;
+    private double sum;
+    private StudentRecord lowest;
+    private StudentRecord highest;
+    private double lowestTotal;
+    private double highestTotal;
+    private final long[] letterCounts = new long[LETTERS.length];
+
+    /** Running mean and sum of squared deviations (Welford). */
+    private double mean;
+    private double m2;
+
+    /** Totals per histogram bin, then below 0, then above 100 (or NaN). */
+    private final long[] histogram = new long[BINS + 2];
+
+    /**
+     * Build empty statistics.
+     */
+    public LedgerStats() {
+    }
+
+    /* ========================== building ========================== */
+
+    /**
+     * Reduce records on the calling thread.
+     *
+     * @param records records to grade
+     * @return statistics over all records
+     */
+    public static LedgerStats of(StudentRecord[] records) {
+        return reduce(records, 0, records.length);
+    }
+
+    /**
+     * Reduce records with fork/join on the common pool.
+     * Returns exactly what {@link #of(StudentRecord[])} returns.
+     *
+     * @param records records to grade; must not be mutated during the call
+     * @return statistics over all records
+     */
+    public static LedgerStats parallelOf(StudentRecord[] records) {
+        return ForkJoinPool.commonPool().invoke(new StatsTask(records, 0, records.length));
+    }
+
+    /**
+     * Fold one record into these statistics.
+     * Ties keep the record accepted first.
+     *
+     * @param rec graded record
+     */
+    public void accept(StudentRecord rec) {
+        double total = rec.totalScore();
+        if (count == 0 || total < lowestTotal) {
+            lowest = rec;
+            lowestTotal = total;
+        }
+        if (count == 0 || total > highestTotal) {
+            highest = rec;
+            highestTotal = total;
+        }
+        count++;
+        sum += total;
+        letterCounts[letterIndex(rec.letterGrade())]++;
+
+        double delta = total - mean;
+        mean += delta / count;
+        m2 += delta * (total - mean);
+        histogram[bin(total)]++;
+    }
+
+    /**
+     * Combine with statistics over records that come after these.
+     * Ties keep this side's record.
+     *
+     * @param later statistics for the following records
+     * @return this, updated
+     */
+    public LedgerStats merge(LedgerStats later) {
+        if (later.count == 0) return this;
+        if (count == 0 || later.lowestTotal < lowestTotal) {
+            lowest = later.lowest;
+            lowestTotal = later.lowestTotal;
+        }
+        if (count == 0 || later.highestTotal > highestTotal) {
+            highest = later.highest;
+            highestTotal = later.highestTotal;
+        }
+        if (count == 0) {
+            mean = later.mean;
+            m2 = later.m2;
+        } else {
+            // Chan et al. pairwise update
+            double n = (double) count + later.count;
+            double delta = later.mean - mean;
+            mean += delta * (later.count / n);
+            m2 += later.m2 + delta * delta * ((double) count * later.count / n);
+        }
+        count += later.count;
+        sum += later.sum;
+        for (int i = 0; i < letterCounts.length; i++) letterCounts[i] += later.letterCounts[i];
+        for (int i = 0; i < histogram.length; i++) histogram[i] += later.histogram[i];
+        return this;
+    }
+
+    /* ========================== queries =========================== */
+
+    /**
+     * Number of records.
+     *
+     * @return record count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Sum of all totals.
+     *
+     * @return total sum
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * Mean of all totals.
+     *
+     * @return average total, or 0.0 if empty
+     */
+    public double average() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    /**
+     * Population standard deviation of all totals.
+     *
+     * @return standard deviation, or 0.0 if empty
+     */
+    public double standardDeviation() {
+        return count == 0 ? 0.0 : Math.sqrt(m2 / count);
+    }
+
+    /**
+     * Approximate total at a percentile, interpolated within the
+     * one-point histogram bins, so off by at most one point. Totals
+     * outside [0, 100] are reported as the lowest or highest total.
+     *
+     * @param p percentile, 0 to 100
+     * @return total at that percentile, or {@code NaN} if empty
+     */
+    public double percentile(double p) {
+        if (!(p >= 0 && p <= 100)) throw new IllegalArgumentException("Percentile must be in [0, 100]: " + p);
+        if (count == 0) return Double.NaN;
+        double target = p / 100 * count;
+        double seen = histogram[BINS];
+        if (target <= seen && seen > 0) return lowestTotal;
+        for (int b = 0; b < BINS; b++) {
+            long inBin = histogram[b];
+            if (inBin > 0 && target <= seen + inBin) {
+                double at = b + (target - seen) / inBin;
+                return Math.max(lowestTotal, Math.min(highestTotal, at));
+            }
+            seen += inBin;
+        }
+        return highestTotal;
+    }
+
+    /**
+     * Approximate decile boundary; see {@link #percentile(double)}.
+     *
+     * @param k decile, 0 (lowest) to 10 (highest)
+     * @return total at the k-th decile, or {@code NaN} if empty
+     */
+    public double decile(int k) {
+        return percentile(k * 10.0);
+    }
+
+    /**
+     * Counts per one-point bin: element {@code i} counts totals in
+     * [i, i + 1), and the last bin also holds totals of exactly 100.
+     *
+     * @return copy of the 100 bins
+     */
+    public long[] histogram() {
+        return Arrays.copyOf(histogram, BINS);
+    }
+
+    /**
+     * Lowest-scoring record.
+     *
+     * @return record with the smallest total, or {@code null} if empty
+     */
+    public StudentRecord lowest() {
+        return lowest;
+    }
+
+    /**
+     * Highest-scoring record.
+     *
+     * @return record with the greatest total, or {@code null} if empty
+     */
+    public StudentRecord highest() {
+        return highest;
+    }
+
+    /**
+     * Number of records with a given letter.
+     *
+     * @param letter one of {@link #LETTERS}
+     * @return records with that letter
+     */
+    public long letterCount(String letter) {
+        return letterCounts[letterIndex(letter)];
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private static LedgerStats reduce(StudentRecord[] records, int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE) return leaf(records, lo, hi);
+        int mid = (lo + hi) >>> 1;
+        return reduce(records, lo, mid).merge(reduce(records, mid, hi));
+    }
+
+    private static LedgerStats leaf(StudentRecord[] records, int lo, int hi) {
+        LedgerStats stats = new LedgerStats();
+        for (int i = lo; i < hi; i++) stats.accept(records[i]);
+        return stats;
+    }
+
+    /**
+     * Histogram slot for a total: its bin, {@code BINS} below 0, {@code BINS + 1} above 100.
+     */
+    private static int bin(double total) {
+        if (total < 0) return BINS;
+        if (!(total <= BINS)) return BINS + 1;
+        return Math.min((int) total, BINS - 1);
+    }
+
+    private static int letterIndex(String letter) {
+        for (int i = 0; i < LETTERS.length; i++) {
+            if (LETTERS[i].equals(letter)) return i;
+        }
+        throw new IllegalArgumentException("Unknown letter: " + letter);
+    }
+
+    /**
+     * Fork/join mirror of {@link #reduce}: same split points, same merge order.
+     */
+    private static final class StatsTask extends RecursiveTask<LedgerStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final StudentRecord[] records;
+        private final int lo;
+        private final int hi;
+
+        StatsTask(StudentRecord[] records, int lo, int hi) {
+            this.records = records;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected LedgerStats compute() {
+            if (hi - lo <= LEAF_SIZE) return leaf(records, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            StatsTask left = new StatsTask(records, lo, mid);
+            left.fork();
+            LedgerStats right = new StatsTask(records, mid, hi).compute();
+            return left.join().merge(right);
+        }
+    }
+}
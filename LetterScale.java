@@ -0,0 +1,300 @@
+import java.util.Arrays;
+
+/**
+ * Letter-grade cutoffs as a table: the lowest total for each passing
+ * letter, plus a ceiling above which a total is "Not Within Range".
+ * A failed final exam is always an F.
+ * <p>
+ * Lookup is a binary search over the ten floors, so classifying a batch
+ * costs four predictable compares per total instead of a long if/else
+ * chain. {@link #DEFAULT} is the course's standard scale.
+ * <p>
+ * The curve solvers find the smallest uniform shift (points subtracted
+ * from every floor) or scale factor (every floor divided by it) that
+ * gives at least a target share of the class a letter or better. They
+ * work from the ledger's already-sorted totals, so no candidate curve
+ * re-grades a record.
+ */
+public final class LetterScale {
+
+    /**
+     * Number of floors: D, C-, C, C+, B-, B, B+, A-, A, A+.
+     */
+    public static final int FLOOR_COUNT = 10;
+
+    /**
+     * Index into {@code LedgerStats.LETTERS} of F and of "Not Within Range".
+     */
+    private static final int F = 10;
+    private static final int OUT_OF_RANGE = 11;
+
+    /**
+     * The standard scale: D 60, C- 70, C 72, C+ 78, B- 80, B 82, B+ 88,
+     * A- 90, A 92, A+ 98, ceiling 100.
+     */
+    public static final LetterScale DEFAULT =
+            new LetterScale(new double[] {60, 70, 72, 78, 80, 82, 88, 90, 92, 98}, 100);
+
+    /** Ascending lowest totals for D through A+. */
+    private final double[] floors;
+    private final double ceiling;
+
+    /**
+     * Build a scale.
+     *
+     * @param floors  lowest total for D, C-, C, C+, B-, B, B+, A-, A, A+, non-decreasing
+     * @param ceiling highest total still graded (inclusive), {@code >=} the A+ floor
+     */
+    public LetterScale(double[] floors, double ceiling) {
+        if (floors.length != FLOOR_COUNT) {
+            throw new IllegalArgumentException("Expected " + FLOOR_COUNT + " floors, got " + floors.length);
+        }
+        for (int i = 0; i < FLOOR_COUNT; i++) {
+            if (Double.isNaN(floors[i]) || (i > 0 && floors[i] < floors[i - 1])) {
+                throw new IllegalArgumentException("Floors must be non-decreasing numbers: " + Arrays.toString(floors));
+            }
+        }
+        if (!(ceiling >= floors[FLOOR_COUNT - 1])) {
+            throw new IllegalArgumentException("Ceiling " + ceiling + " is below the A+ floor " + floors[FLOOR_COUNT - 1]);
+        }
+        this.floors = floors.clone();
+        this.ceiling = ceiling;
+    }
+
+    /* ========================== lookup ========================== */
+
+    /**
+     * Letter for a total.
+     *
+     * @param total        weighted total
+     * @param finalPassing whether the final exam is >= 60
+     * @return letter grade
+     */
+    public String letter(double total, boolean finalPassing) {
+        return LedgerStats.LETTERS[rank(total, finalPassing)];
+    }
+
+    /**
+     * Letter for a total, as an index into {@code LedgerStats.LETTERS}.
+     *
+     * @param total        weighted total
+     * @param finalPassing whether the final exam is >= 60
+     * @return letter index, 0 for A+ through 11 for "Not Within Range"
+     */
+    public int rank(double total, boolean finalPassing) {
+        if (!finalPassing) return F;
+        if (!(total <= ceiling)) return OUT_OF_RANGE;
+        return F - floorsAtOrBelow(total);
+    }
+
+    /**
+     * Lowest total earning a letter.
+     *
+     * @param letter a passing letter, D through A+
+     * @return its floor
+     */
+    public double floor(String letter) {
+        return floors[floorIndex(letter)];
+    }
+
+    /**
+     * Floors for D, C-, C, C+, B-, B, B+, A-, A, A+.
+     *
+     * @return copy of the floors
+     */
+    public double[] getFloors() {
+        return floors.clone();
+    }
+
+    /**
+     * Highest total still graded.
+     *
+     * @return ceiling
+     */
+    public double getCeiling() {
+        return ceiling;
+    }
+
+    /* ========================== curves ========================== */
+
+    /**
+     * This scale with every floor lowered by {@code points}.
+     *
+     * @param points amount to subtract from each floor
+     * @return shifted scale
+     */
+    public LetterScale shifted(double points) {
+        double[] out = new double[FLOOR_COUNT];
+        for (int i = 0; i < FLOOR_COUNT; i++) out[i] = floors[i] - points;
+        return new LetterScale(out, ceiling);
+    }
+
+    /**
+     * This scale with every floor divided by {@code factor}, as if each
+     * total were multiplied by it.
+     *
+     * @param factor positive scale factor
+     * @return scaled scale
+     */
+    public LetterScale scaled(double factor) {
+        double[] out = new double[FLOOR_COUNT];
+        for (int i = 0; i < FLOOR_COUNT; i++) out[i] = floors[i] / factor;
+        return new LetterScale(out, ceiling);
+    }
+
+    /**
+     * Smallest shift ({@code >= 0}) after which, for every target, at least
+     * {@code shares[i]} of the class earns {@code letters[i]} or better.
+     *
+     * @param ledger  class to curve
+     * @param letters passing letters, D through A+
+     * @param shares  matching target shares of the whole class, 0 to 1
+     * @return points to pass to {@link #shifted(double)}
+     */
+    public double shiftToReach(GradeLedger ledger, String[] letters, double[] shares) {
+        return shiftToReach(ledger.passingTotals(), ledger.size(), letters, shares);
+    }
+
+    /**
+     * Same as {@link #shiftToReach(GradeLedger, String[], double[])} over
+     * precomputed totals.
+     *
+     * @param ascending  totals of students whose final is passing, ascending
+     * @param population class size, including students who failed the final
+     * @param letters    passing letters, D through A+
+     * @param shares     matching target shares of the whole class, 0 to 1
+     * @return points to pass to {@link #shifted(double)}
+     */
+    public double shiftToReach(double[] ascending, int population, String[] letters, double[] shares) {
+        double shift = 0.0;
+        for (int i = 0; i < letters.length; i++) {
+            double needed = threshold(ascending, population, letters[i], shares[i]);
+            if (Double.isNaN(needed)) continue;
+            double floor = floor(letters[i]);
+            // settle rounding so s is the smallest double with floor - s <= needed
+            double s = Math.max(0.0, floor - needed);
+            while (floor - s > needed) s = Math.nextUp(s);
+            while (s > 0 && floor - Math.nextDown(s) <= needed) s = Math.nextDown(s);
+            shift = Math.max(shift, s);
+        }
+        return shift;
+    }
+
+    /**
+     * Smallest factor ({@code >= 1}) after which, for every target, at least
+     * {@code shares[i]} of the class earns {@code letters[i]} or better.
+     *
+     * @param ledger  class to curve
+     * @param letters passing letters, D through A+
+     * @param shares  matching target shares of the whole class, 0 to 1
+     * @return factor to pass to {@link #scaled(double)}
+     */
+    public double scaleToReach(GradeLedger ledger, String[] letters, double[] shares) {
+        return scaleToReach(ledger.passingTotals(), ledger.size(), letters, shares);
+    }
+
+    /**
+     * Same as {@link #scaleToReach(GradeLedger, String[], double[])} over
+     * precomputed totals.
+     *
+     * @param ascending  totals of students whose final is passing, ascending
+     * @param population class size, including students who failed the final
+     * @param letters    passing letters, D through A+
+     * @param shares     matching target shares of the whole class, 0 to 1
+     * @return factor to pass to {@link #scaled(double)}
+     */
+    public double scaleToReach(double[] ascending, int population, String[] letters, double[] shares) {
+        double factor = 1.0;
+        for (int i = 0; i < letters.length; i++) {
+            double needed = threshold(ascending, population, letters[i], shares[i]);
+            if (Double.isNaN(needed)) continue;
+            double floor = floor(letters[i]);
+            if (floor <= needed) continue;
+            if (needed <= 0) {
+                throw new IllegalArgumentException("No scale factor lifts a total of " + needed + " to " + letters[i]);
+            }
+            double f = floor / needed;
+            while (floor / f > needed) f = Math.nextUp(f);
+            while (f > 1 && floor / Math.nextDown(f) <= needed) f = Math.nextDown(f);
+            factor = Math.max(factor, f);
+        }
+        return factor;
+    }
+
+    /* ------------------------- object ------------------------- */
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LetterScale)) return false;
+        LetterScale s = (LetterScale) o;
+        return Arrays.equals(floors, s.floors) && Double.compare(ceiling, s.ceiling) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(floors) + Double.hashCode(ceiling);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LetterScale[");
+        for (int i = FLOOR_COUNT - 1; i >= 0; i--) {
+            sb.append(LedgerStats.LETTERS[F - 1 - i]).append(' ').append(floors[i]).append(", ");
+        }
+        return sb.append("ceiling ").append(ceiling).append(']').toString();
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Number of floors {@code <= total}: a branch-light lower-bound search.
+     */
+    private int floorsAtOrBelow(double total) {
+        int base = 0;
+        int len = FLOOR_COUNT;
+        while (len > 1) {
+            int half = len >>> 1;
+            if (floors[base + half - 1] <= total) base += half;
+            len -= half;
+        }
+        return floors[base] <= total ? base + 1 : base;
+    }
+
+    private static int floorIndex(String letter) {
+        for (int i = 0; i < FLOOR_COUNT; i++) {
+            if (LedgerStats.LETTERS[F - 1 - i].equals(letter)) return i;
+        }
+        throw new IllegalArgumentException("Not a passing letter: " + letter);
+    }
+
+    /**
+     * Total the k-th best gradeable student has, where k is the share of
+     * the class that must reach a letter; {@code NaN} if the share is 0.
+     */
+    private double threshold(double[] ascending, int population, String letter, double share) {
+        floorIndex(letter);
+        if (!(share >= 0 && share <= 1)) throw new IllegalArgumentException("Share must be in [0, 1]: " + share);
+        int needed = (int) Math.ceil(share * population);
+        if (needed == 0) return Double.NaN;
+        int gradeable = upperBound(ascending, ceiling);
+        if (needed > gradeable) {
+            throw new IllegalArgumentException("Only " + gradeable + " of " + population
+                    + " students can reach " + letter + "; " + needed + " needed");
+        }
+        return ascending[gradeable - needed];
+    }
+
+    /**
+     * Number of leading values {@code <= limit}.
+     */
+    private static int upperBound(double[] ascending, double limit) {
+        int lo = 0;
+        int hi = ascending.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ascending[mid] <= limit) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,121 @@
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for {@code GradeServer} over loopback.
+ * <p>
+ * Usage: {@code java LoadGenerator [clients] [requests per client] [students]},
+ * default 200 clients, 500 requests each and 10000 synthetic students.
+ * Starts a server on a free loopback port, then every client (a virtual
+ * thread when available) sends requests back to back: 90% student
+ * lookups, 8% stats and 2% score updates. Prints throughput and latency
+ * percentiles, and exits 1 if any request failed.
+ */
+public class LoadGenerator {
+
+    private static final long SEED = 42L;
+
+    /** Requests sent, unmeasured, before the run so the JIT has warmed up. */
+    private static final int WARMUP_REQUESTS = 5_000;
+
+    private static final String[] BUCKETS = {"reading", "lab", "exercise", "project"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int perClient = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int students = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        ConcurrentGradeLedger ledger = new ConcurrentGradeLedger();
+        for (StudentRecord rec : SyntheticLedger.students(students, SEED)) ledger.insertRecord(rec);
+
+        try (GradeServer server = GradeServer.start(ledger,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            String base = "http://127.0.0.1:" + server.port();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            AtomicLong failures = new AtomicLong();
+
+            run(client, base, students, WARMUP_REQUESTS, new SplittableRandom(SEED), failures);
+            failures.set(0);
+
+            ExecutorService pool = GradeServer.newVirtualThreadExecutor();
+            if (pool == null) pool = Executors.newFixedThreadPool(clients);
+            long[][] latencies = new long[clients][];
+            SplittableRandom seeds = new SplittableRandom(SEED + 1);
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                int id = c;
+                SplittableRandom rnd = seeds.split();
+                pool.execute(() -> latencies[id] = run(client, base, students, perClient, rnd, failures));
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long[] all = new long[clients * perClient];
+            int n = 0;
+            for (long[] l : latencies) {
+                if (l == null) continue;
+                System.arraycopy(l, 0, all, n, l.length);
+                n += l.length;
+            }
+            Arrays.sort(all, 0, n);
+
+            System.out.printf("%d clients x %d requests on %d students (%s)%n", clients, perClient, students,
+                    server.usesVirtualThreads() ? "virtual threads" : "thread pool");
+            System.out.printf("%d requests in %.2f s: %.0f req/s, %d failed%n", n, seconds, n / seconds, failures.get());
+            System.out.printf("latency ms: p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                    percentile(all, n, 50), percentile(all, n, 90), percentile(all, n, 99),
+                    percentile(all, n, 99.9), n == 0 ? 0.0 : all[n - 1] / 1e6);
+            if (failures.get() > 0 || n != all.length) System.exit(1);
+        }
+    }
+
+    /**
+     * Send {@code count} requests in sequence.
+     *
+     * @return latency of each request in nanoseconds
+     */
+    private static long[] run(HttpClient client, String base, int students, int count,
+                              SplittableRandom rnd, AtomicLong failures) {
+        long[] out = new long[count];
+        for (int i = 0; i < count; i++) {
+            String gNumber = SyntheticLedger.gNumber(rnd.nextInt(students));
+            int pick = rnd.nextInt(100);
+            HttpRequest request;
+            if (pick < 90) {
+                request = HttpRequest.newBuilder(URI.create(base + "/students/" + gNumber)).GET().build();
+            } else if (pick < 98) {
+                request = HttpRequest.newBuilder(URI.create(base + "/stats")).GET().build();
+            } else {
+                String line = gNumber + ", " + BUCKETS[rnd.nextInt(BUCKETS.length)] + ", add, " + rnd.nextInt(101);
+                request = HttpRequest.newBuilder(URI.create(base + "/scores"))
+                        .POST(HttpRequest.BodyPublishers.ofString(line)).build();
+            }
+            long t0 = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) failures.incrementAndGet();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+            }
+            out[i] = System.nanoTime() - t0;
+        }
+        return out;
+    }
+
+    private static double percentile(long[] sorted, int n, double p) {
+        if (n == 0) return 0.0;
+        int rank = (int) Math.ceil(p / 100 * n) - 1;
+        return sorted[Math.max(0, rank)] / 1e6;
+    }
+}
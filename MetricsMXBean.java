@@ -0,0 +1,63 @@
+import java.util.Map;
+
+/**
+ * JMX view of {@code Metrics}, registered as {@code grades:type=Metrics}.
+ * Counts are cumulative since start or the last {@link #reset()}; a
+ * monitoring tool derives rates from successive reads.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Whether instrumentation is on ({@code -Dgrades.metrics=true}).
+     *
+     * @return {@code true} if hot paths are being measured
+     */
+    boolean isEnabled();
+
+    /**
+     * Event counts, by counter name.
+     *
+     * @return counter values
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Operations measured, by timer name.
+     *
+     * @return timer counts
+     */
+    Map<String, Long> getTimerCounts();
+
+    /**
+     * Median latency, by timer name.
+     *
+     * @return p50 in microseconds
+     */
+    Map<String, Double> getP50Micros();
+
+    /**
+     * 99th-percentile latency, by timer name.
+     *
+     * @return p99 in microseconds
+     */
+    Map<String, Double> getP99Micros();
+
+    /**
+     * Mean bytes allocated per operation, for timers that track it.
+     *
+     * @return bytes per operation
+     */
+    Map<String, Double> getBytesPerOp();
+
+    /**
+     * Everything, as the JSON dump.
+     *
+     * @return JSON object
+     */
+    String getJson();
+
+    /**
+     * Zero every counter and timer.
+     */
+    void reset();
+}
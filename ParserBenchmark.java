@@ -0,0 +1,78 @@
+import java.util.Random;
+
+/**
+ * Compares {@code ScoreParser} with the old per-line
+ * {@code split(",")} / {@code trim()} / {@code Double.parseDouble} path.
+ * <p>
+ * Usage: {@code java ParserBenchmark [lines] [rounds]}. Prints ns per score
+ * and bytes allocated per score for each path.
+ */
+public class ParserBenchmark {
+
+    public static void main(String[] args) {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        String[] lines = syntheticLines(lineCount, new Random(42));
+        long scores = 0;
+        for (String line : lines) scores += line.chars().filter(c -> c == ',').count() + 1;
+
+        for (int round = 1; round <= rounds; round++) {
+            boolean report = round == rounds;
+            measure("split/trim/parseDouble", lines, scores, report, ParserBenchmark::splitPath);
+            measure("ScoreParser", lines, scores, report, ParserBenchmark::scannerPath);
+        }
+    }
+
+    /* ------------------------- paths ------------------------- */
+
+    private static double splitPath(String[] lines) {
+        double sum = 0.0;
+        for (String line : lines) {
+            for (String token : line.split(",")) sum += Double.parseDouble(token.trim());
+        }
+        return sum;
+    }
+
+    private static double scannerPath(String[] lines) {
+        double[] sum = new double[1];
+        for (int i = 0; i < lines.length; i++) {
+            ScoreParser.parseList(lines[i], i + 1, s -> sum[0] += s);
+        }
+        return sum[0];
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private interface ParsePath {
+        double run(String[] lines);
+    }
+
+    private static void measure(String name, String[] lines, long scores, boolean report, ParsePath path) {
+        long bytesBefore = GradingBenchmark.allocatedBytes();
+        long start = System.nanoTime();
+        double checksum = path.run(lines);
+        long nanos = System.nanoTime() - start;
+        long bytes = GradingBenchmark.allocatedBytes() - bytesBefore;
+        if (report) {
+            System.out.printf("%-24s %8.1f ns/score  %8.1f B/score  (checksum %.1f)%n",
+                    name, (double) nanos / scores, (double) bytes / scores, checksum);
+        }
+    }
+
+    private static String[] syntheticLines(int count, Random rnd) {
+        String[] lines = new String[count];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.setLength(0);
+            int scores = 3 + rnd.nextInt(18);
+            for (int j = 0; j < scores; j++) {
+                if (j > 0) sb.append(", ");
+                sb.append(rnd.nextInt(101));
+                if (rnd.nextBoolean()) sb.append('.').append(rnd.nextInt(10));
+            }
+            lines[i] = sb.toString();
+        }
+        return lines;
+    }
+}
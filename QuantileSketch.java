@@ -0,0 +1,290 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Mergeable streaming quantile sketch (KLL) over doubles, with exact
+ * count, min and max.
+ * <p>
+ * Values live in a stack of levels; an item on level {@code h} stands for
+ * {@code 2^h} inputs. When the sketch is over capacity the lowest full
+ * level is sorted and every other item, starting at a random offset, moves
+ * up a level, so total weight always equals the count. Level capacities
+ * shrink by 2/3 going down from {@code k} at the top, which keeps memory
+ * at roughly {@code 3k} values however many are added.
+ * <p>
+ * With the default {@code k = 200} a rank answer is typically within
+ * about 1% of the class. The coin is seeded, so the same inputs in the
+ * same order always give the same sketch. NaN values are ignored.
+ */
+public final class QuantileSketch {
+
+    /** Default accuracy parameter. */
+    public static final int DEFAULT_K = 200;
+
+    /** Smallest level capacity. */
+    private static final int MIN_WIDTH = 8;
+
+    private static final long SEED = 0x5EEDL;
+
+    private final int k;
+    private final SplittableRandom coin = new SplittableRandom(SEED);
+
+    /** Items per level; only the first {@code sizes[h]} of each are live. */
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private int numLevels = 1;
+    private int retained;
+    private int capacity;
+
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /** Sorted items and cumulative weights, rebuilt on the first query after a change. */
+    private double[] sortedValues;
+    private long[] cumulative;
+
+    /**
+     * Build an empty sketch with {@link #DEFAULT_K}.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Build an empty sketch.
+     *
+     * @param k accuracy parameter, at least 8; error shrinks roughly as 1/k
+     */
+    public QuantileSketch(int k) {
+        if (k < MIN_WIDTH) throw new IllegalArgumentException("k must be >= " + MIN_WIDTH + ": " + k);
+        this.k = k;
+        levels[0] = new double[k];
+        capacity = levelCapacity(0);
+    }
+
+    /* ========================== building ========================== */
+
+    /**
+     * Add one value.
+     *
+     * @param value value to add; NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        count++;
+        append(0, value);
+        retained++;
+        sortedValues = null;
+        if (retained > capacity) compress();
+    }
+
+    /**
+     * Fold in another sketch, e.g. one built over a different section.
+     * The other sketch is not changed.
+     *
+     * @param other sketch to add
+     * @return this, updated
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other == this) throw new IllegalArgumentException("Cannot merge a sketch into itself");
+        if (other.count == 0) return this;
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        count += other.count;
+        for (int h = 0; h < other.numLevels; h++) {
+            while (numLevels <= h) addLevel();
+            for (int i = 0; i < other.sizes[h]; i++) append(h, other.levels[h][i]);
+            retained += other.sizes[h];
+        }
+        sortedValues = null;
+        compress();
+        return this;
+    }
+
+    /* ========================== queries =========================== */
+
+    /**
+     * Number of values added, including those merged in.
+     *
+     * @return count
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Smallest value added.
+     *
+     * @return exact minimum, or {@code NaN} if empty
+     */
+    public double min() {
+        return min;
+    }
+
+    /**
+     * Largest value added.
+     *
+     * @return exact maximum, or {@code NaN} if empty
+     */
+    public double max() {
+        return max;
+    }
+
+    /**
+     * Values currently stored; memory is about eight bytes per value.
+     *
+     * @return retained values
+     */
+    public int retained() {
+        return retained;
+    }
+
+    /**
+     * Approximate value at a 0-based rank in ascending order.
+     *
+     * @param rank rank, {@code 0 <= rank < count()}
+     * @return approximate rank-th smallest value; exact at the ends
+     */
+    public double valueAtRank(long rank) {
+        if (rank < 0 || rank >= count) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " out of bounds for count " + count);
+        }
+        if (rank == 0) return min;
+        if (rank == count - 1) return max;
+        ensureSorted();
+        int i = Arrays.binarySearch(cumulative, rank + 1);
+        if (i < 0) i = -i - 1;
+        return sortedValues[i];
+    }
+
+    /**
+     * Approximate value at a percentile by nearest rank, as
+     * {@code GradeLedger.recordAtPercentile} picks it.
+     *
+     * @param p percentile, 0 to 100
+     * @return approximate value, or {@code NaN} if empty
+     */
+    public double percentile(double p) {
+        if (!(p >= 0 && p <= 100)) throw new IllegalArgumentException("Percentile must be in [0, 100]: " + p);
+        if (count == 0) return Double.NaN;
+        long rank = (long) Math.ceil(p / 100 * count) - 1;
+        return valueAtRank(Math.max(0, rank));
+    }
+
+    /**
+     * Approximate share of values strictly below {@code value}.
+     *
+     * @param value value to rank
+     * @return percentile rank 0 to 100, or 0.0 if empty
+     */
+    public double percentileRank(double value) {
+        if (count == 0) return 0.0;
+        ensureSorted();
+        int lo = 0;
+        int hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo == 0 ? 0.0 : 100.0 * cumulative[lo - 1] / count;
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Capacity of level {@code h}: {@code k} at the top, 2/3 of the level
+     * above it below that, but never under {@link #MIN_WIDTH}.
+     */
+    private int levelCapacity(int h) {
+        int depth = numLevels - 1 - h;
+        return Math.max(MIN_WIDTH, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        sizes = Arrays.copyOf(sizes, numLevels + 1);
+        levels[numLevels] = new double[MIN_WIDTH];
+        numLevels++;
+        capacity = 0;
+        for (int h = 0; h < numLevels; h++) capacity += levelCapacity(h);
+    }
+
+    private void append(int h, double value) {
+        double[] items = levels[h];
+        if (sizes[h] == items.length) levels[h] = items = Arrays.copyOf(items, items.length * 2);
+        items[sizes[h]++] = value;
+    }
+
+    /**
+     * Compact the lowest full level until the sketch is within capacity.
+     */
+    private void compress() {
+        while (retained > capacity) {
+            for (int h = 0; h < numLevels; h++) {
+                if (sizes[h] >= levelCapacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort level {@code h} and promote every other item to the next level;
+     * an odd item out stays behind.
+     */
+    private void compact(int h) {
+        if (h + 1 == numLevels) addLevel();
+        double[] items = levels[h];
+        int n = sizes[h];
+        Arrays.sort(items, 0, n);
+        int pairs = n & ~1;
+        for (int i = coin.nextBoolean() ? 1 : 0; i < pairs; i += 2) append(h + 1, items[i]);
+        if ((n & 1) != 0) {
+            items[0] = items[n - 1];
+            sizes[h] = 1;
+        } else {
+            sizes[h] = 0;
+        }
+        retained -= pairs / 2;
+    }
+
+    /**
+     * Merge the levels into one sorted run with cumulative weights.
+     */
+    private void ensureSorted() {
+        if (sortedValues != null) return;
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int h = 0; h < numLevels; h++) {
+            int n = sizes[h];
+            if (n == 0) continue;
+            double[] level = Arrays.copyOf(levels[h], n);
+            Arrays.sort(level);
+            long w = 1L << h;
+
+            double[] mergedValues = new double[values.length + n];
+            long[] mergedWeights = new long[mergedValues.length];
+            int a = 0;
+            int b = 0;
+            for (int o = 0; o < mergedValues.length; o++) {
+                if (b == n || (a < values.length && values[a] <= level[b])) {
+                    mergedValues[o] = values[a];
+                    mergedWeights[o] = weights[a++];
+                } else {
+                    mergedValues[o] = level[b++];
+                    mergedWeights[o] = w;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+        for (int i = 1; i < weights.length; i++) weights[i] += weights[i - 1];
+        sortedValues = values;
+        cumulative = weights;
+    }
+}
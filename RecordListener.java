@@ -0,0 +1,48 @@
+/**
+ * Callback for {@code StudentRecord} changes.
+ * Used by {@code GradeLedger} to keep its rank index current and by
+ * {@code GradeJournal} to log every grade entry.
+ */
+public interface RecordListener {
+
+    /**
+     * Called when a record's cached grade goes stale because an adder,
+     * a score setter or {@code setWeights} changed it.
+     *
+     * @param record the record that changed
+     */
+    void recordChanged(StudentRecord record);
+
+    /**
+     * Called after every mutation, including ones that do not affect the
+     * grade (such as a name change), once {@code recordChanged} or
+     * {@code nameChanged} has run for every listener. Bulk adders report one call for the
+     * whole array, with an {@code ADD_READINGS}-style op and the number
+     * of scores appended as the value.
+     *
+     * @param record the record that changed
+     * @param op     what changed
+     * @param value  the score or count passed to the mutator; {@code NaN}
+     *               when the new value must be read from the record
+     */
+    default void recordUpdated(StudentRecord record, GradeOp op, double value) {
+    }
+
+    /**
+     * Called after a record's G# changes.
+     *
+     * @param record   the record that changed
+     * @param previous G# before the change
+     */
+    default void gNumberChanged(StudentRecord record, String previous) {
+    }
+
+    /**
+     * Called after a record's name changes, before {@code recordUpdated}.
+     *
+     * @param record   the record that changed
+     * @param previous name before the change
+     */
+    default void nameChanged(StudentRecord record, String previous) {
+    }
+}
@@ -0,0 +1,572 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Streams ledger and student reports to a {@code Writer} without building
+ * the whole report in memory.
+ * <p>
+ * Three layouts:
+ * <ul>
+ *   <li>text: the box layout, character for character the same as
+ *       {@code GradeLedger.toString()} and {@code StudentRecord.toString()}</li>
+ *   <li>CSV: a header, then one row per student; also the finals each
+ *       student needs per letter, from {@code FinalExamSolver}</li>
+ *   <li>JSON lines: one object per student, then one summary object</li>
+ * </ul>
+ * Lines are assembled in a reused char buffer and written in large
+ * chunks. Fixed two-decimal numbers are formatted by hand. The rare value
+ * within rounding distance of a tie goes through {@code String.format},
+ * so output always matches {@code %.2f}.
+ */
+public class ReportWriter implements Flushable, Closeable {
+
+    private static final int BUFFER_CHARS = 1 << 14;
+
+    /** CSV column names, in row order. */
+    private static final String CSV_HEADER =
+            "name,gNumber,total,letter,participation,readings,labs,exercises,projects,midterm,final";
+
+    /** Smallest buffer; a longer piece grows it as needed. */
+    private static final int MIN_BUFFER_CHARS = 256;
+
+    /** Decimal symbols of the last default format locale seen, shared by all writers. */
+    private static volatile LocaleDigits digits;
+
+    private final Writer out;
+    private char[] buf;
+    private int pos;
+
+    /** Scratch for bucket lists. */
+    private final StringBuilder scratch = new StringBuilder(64);
+
+    /** Decimal point of the default format locale, as {@code String.format} uses. */
+    private final char localePoint;
+
+    /** False if the locale uses non-ASCII digits or minus sign; then text numbers always take the slow path. */
+    private final boolean localeAscii;
+
+    /**
+     * Write to a character stream. The writer is not buffered further.
+     *
+     * @param out destination
+     */
+    public ReportWriter(Writer out) {
+        this(out, BUFFER_CHARS);
+    }
+
+    /**
+     * Write to a character stream through a buffer sized for the expected
+     * output, e.g. one student's {@code toString()}.
+     *
+     * @param out         destination
+     * @param bufferChars expected output length; clamped to 256..16K chars
+     */
+    public ReportWriter(Writer out, int bufferChars) {
+        this.out = out;
+        this.buf = new char[Math.max(MIN_BUFFER_CHARS, Math.min(bufferChars, BUFFER_CHARS))];
+        LocaleDigits d = localeDigits();
+        this.localePoint = d.point;
+        this.localeAscii = d.ascii;
+    }
+
+    /**
+     * Write UTF-8 to a byte stream through a 64 KB buffer.
+     *
+     * @param out destination
+     * @return report writer
+     */
+    public static ReportWriter of(OutputStream out) {
+        return new ReportWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    /* ========================== text ========================== */
+
+    /**
+     * Box layout of a whole ledger, as {@code GradeLedger.toString()}.
+     *
+     * @param ledger ledger to report
+     * @throws IOException if the writer fails
+     */
+    public void writeText(GradeLedger ledger) throws IOException {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        long a0 = Metrics.ENABLED ? Metrics.REPORT_LEDGER.allocationMark() : 0L;
+        put("┌───────────────────── GRADEBOOK ─────────────────────┐\n");
+        if (ledger.size() == 0) {
+            put("│ No records yet.                                      │\n");
+        } else {
+            put("│ Students                                             │\n");
+            for (StudentRecord r : ledger.getRecords()) {
+                put("│ • ");
+                putPadded(r.getStudentName(), 20);
+                put(" | Letter: ");
+                putPadded(r.letterGrade(), 2);
+                put(" | Total: ");
+                putFixed(r.totalScore(), 6, false);
+                put(" │\n");
+                spill();
+            }
+        }
+        put("├──────────────────────── STATS ───────────────────────┤\n");
+        StudentRecord hi = ledger.highestRecord();
+        StudentRecord lo = ledger.lowestRecord();
+        StudentRecord med = ledger.medianRecord();
+        double avg = ledger.classAverage();
+
+        put("│ Max:    ");
+        putDescription(hi);
+        put("\n│ Median: ");
+        putDescription(med);
+        put("\n│ Avg:    ");
+        if (ledger.size() == 0) put("—");
+        else putFixed(avg, 0, false);
+        put("\n│ Min:    ");
+        putDescription(lo);
+        put("\n└──────────────────────────────────────────────────────┘");
+        drain();
+        if (Metrics.ENABLED) Metrics.REPORT_LEDGER.record(t0, a0);
+    }
+
+    /**
+     * Box layout of one student, as {@code StudentRecord.toString()}.
+     *
+     * @param r student to report
+     * @throws IOException if the writer fails
+     */
+    public void writeText(StudentRecord r) throws IOException {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        String nl = System.lineSeparator();
+        put("┌──────────────────────── STUDENT ────────────────────────┐");
+        put(nl);
+        put("│ Name : ");
+        putPadded(r.getStudentName(), 46);
+        put(" │");
+        put(nl);
+        put("│ G#   : ");
+        putPadded(r.getGNumber(), 46);
+        put(" │");
+        put(nl);
+        put("├────────────────────── RAW SCORES ───────────────────────┤");
+        put(nl);
+        putScoreLine("│ Participation : ", r.getParticipation(), nl);
+        putBucketLine("│ Readings      : ", r.unweightedReadingsScore(), r.readingBucket(), nl);
+        putBucketLine("│ Labs          : ", r.unweightedLabsScore(), r.labBucket(), nl);
+        putBucketLine("│ Exercises     : ", r.unweightedExercisesScore(), r.exerciseBucket(), nl);
+        putBucketLine("│ Projects      : ", r.unweightedProjectsScore(), r.projectBucket(), nl);
+        putScoreLine("│ Midterm       : ", r.getMidterm(), nl);
+        putScoreLine("│ Final Exam    : ", r.getFinalExam(), nl);
+        put("├─────────────────────── SUMMARY ─────────────────────────┤");
+        put(nl);
+        put("│ Total: ");
+        putFixed(r.totalScore(), 6, false);
+        put("   Letter: ");
+        putPadded(r.letterGrade(), 3);
+        put("                         │");
+        put(nl);
+        put("└─────────────────────────────────────────────────────────┘");
+        drain();
+        if (Metrics.ENABLED) Metrics.REPORT_STUDENT.record(t0);
+    }
+
+    /* ========================== CSV ========================== */
+
+    /**
+     * One header row, then one row per student: name, G#, total, letter,
+     * participation, the four category means, midterm and final.
+     * Line ends are {@code \n}; numbers have two decimals.
+     *
+     * @param ledger ledger to report
+     * @throws IOException if the writer fails
+     */
+    public void writeCsv(GradeLedger ledger) throws IOException {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        long a0 = Metrics.ENABLED ? Metrics.REPORT_LEDGER.allocationMark() : 0L;
+        put(CSV_HEADER);
+        put("\n");
+        for (StudentRecord r : ledger.getRecords()) {
+            putCsvField(r.getStudentName());
+            put(",");
+            putCsvField(r.getGNumber());
+            put(",");
+            putFixed(r.totalScore(), 0, true);
+            put(",");
+            putCsvField(r.letterGrade());
+            for (double v : components(r)) {
+                put(",");
+                putFixed(v, 0, true);
+            }
+            put("\n");
+            spill();
+        }
+        drain();
+        if (Metrics.ENABLED) Metrics.REPORT_LEDGER.record(t0, a0);
+    }
+
+    /**
+     * One header row, then one row per student: name, G#, then the final
+     * needed for each passing letter or better, A+ first. Finals are
+     * rounded up to the cent so the printed score is always enough; an
+     * empty field means out of reach.
+     *
+     * @param needed solver output
+     * @throws IOException if the writer fails
+     */
+    public void writeFinalNeededCsv(FinalExamSolver.Result needed) throws IOException {
+        put("name,gNumber");
+        for (int k = 0; k < LetterScale.FLOOR_COUNT; k++) {
+            put(",");
+            put(LedgerStats.LETTERS[k]);
+        }
+        put("\n");
+        for (int i = 0; i < needed.size(); i++) {
+            StudentRecord r = needed.record(i);
+            putCsvField(r.getStudentName());
+            put(",");
+            putCsvField(r.getGNumber());
+            for (double v : needed.neededFinals(i)) {
+                put(",");
+                if (!Double.isNaN(v)) putFixed(ceilCents(v), 0, true);
+            }
+            put("\n");
+            spill();
+        }
+        drain();
+    }
+
+    /* ======================= JSON lines ======================= */
+
+    /**
+     * One JSON object per student with the CSV fields, then a final
+     * {@code {"summary": ...}} line with count, max, median, average and min.
+     *
+     * @param ledger ledger to report
+     * @throws IOException if the writer fails
+     */
+    public void writeJsonLines(GradeLedger ledger) throws IOException {
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+        long a0 = Metrics.ENABLED ? Metrics.REPORT_LEDGER.allocationMark() : 0L;
+        for (StudentRecord r : ledger.getRecords()) {
+            put("{");
+            putJsonStudent(r);
+            double[] c = components(r);
+            put(",\"participation\":");
+            putJsonNumber(c[0]);
+            put(",\"readings\":");
+            putJsonNumber(c[1]);
+            put(",\"labs\":");
+            putJsonNumber(c[2]);
+            put(",\"exercises\":");
+            putJsonNumber(c[3]);
+            put(",\"projects\":");
+            putJsonNumber(c[4]);
+            put(",\"midterm\":");
+            putJsonNumber(c[5]);
+            put(",\"final\":");
+            putJsonNumber(c[6]);
+            put("}\n");
+            spill();
+        }
+        put("{\"summary\":{\"count\":");
+        put(Integer.toString(ledger.size()));
+        put(",\"max\":");
+        putJsonSummary(ledger.highestRecord());
+        put(",\"median\":");
+        putJsonSummary(ledger.medianRecord());
+        put(",\"average\":");
+        if (ledger.size() == 0) put("null");
+        else putJsonNumber(ledger.classAverage());
+        put(",\"min\":");
+        putJsonSummary(ledger.lowestRecord());
+        put("}}\n");
+        drain();
+        if (Metrics.ENABLED) Metrics.REPORT_LEDGER.record(t0, a0);
+    }
+
+    /* ========================== stream ========================== */
+
+    /**
+     * Write out buffered text and flush the underlying writer.
+     *
+     * @throws IOException if the writer fails
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Flush and close the underlying writer.
+     *
+     * @throws IOException if the writer fails
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Smallest whole-cent value whose double is at least {@code v}.
+     * {@code Math.ceil(v * 100)} alone overshoots when the product rounds
+     * just above a whole number (66.67 * 100 is 6667.000000000001).
+     */
+    private static double ceilCents(double v) {
+        double cents = Math.floor(v * 100);
+        return cents / 100 >= v ? cents / 100 : (cents + 1) / 100;
+    }
+
+    private static double[] components(StudentRecord r) {
+        return new double[] {
+            r.getParticipation(), r.unweightedReadingsScore(), r.unweightedLabsScore(),
+            r.unweightedExercisesScore(), r.unweightedProjectsScore(), r.getMidterm(), r.getFinalExam()
+        };
+    }
+
+    private void putDescription(StudentRecord r) throws IOException {
+        if (r == null) {
+            put("—");
+            return;
+        }
+        put(String.valueOf(r.getStudentName()));
+        put(" (Letter: ");
+        put(r.letterGrade());
+        put(", Total: ");
+        putFixed(r.totalScore(), 0, false);
+        put(")");
+    }
+
+    private void putScoreLine(String label, double score, String nl) throws IOException {
+        put(label);
+        putFixed(score, 6, false);
+        put("                                 │");
+        put(nl);
+    }
+
+    /**
+     * Mean plus the bucket's list, padded or cut to 23 chars.
+     */
+    private void putBucketLine(String label, double mean, ScoreBucket bucket, String nl) throws IOException {
+        put(label);
+        putFixed(mean, 6, false);
+        put("  ");
+        scratch.setLength(0);
+        scratch.append('[');
+        int size = bucket.size();
+        for (int i = 0; i < size && scratch.length() < 23; i++) {
+            if (i > 0) scratch.append(", ");
+            scratch.append(bucket.get(i));
+        }
+        if (scratch.length() < 23) scratch.append(']');
+        int n = Math.min(scratch.length(), 23);
+        room(23);
+        scratch.getChars(0, n, buf, pos);
+        pos += n;
+        for (int i = n; i < 23; i++) buf[pos++] = ' ';
+        put("│");
+        put(nl);
+    }
+
+    private void putJsonStudent(StudentRecord r) throws IOException {
+        put("\"name\":");
+        putJsonString(r.getStudentName());
+        put(",\"gNumber\":");
+        putJsonString(r.getGNumber());
+        put(",\"total\":");
+        putJsonNumber(r.totalScore());
+        put(",\"letter\":");
+        putJsonString(r.letterGrade());
+    }
+
+    /**
+     * Two-decimal number, or {@code null} for NaN and infinities, which JSON lacks.
+     */
+    private void putJsonNumber(double v) throws IOException {
+        if (Double.isFinite(v)) putFixed(v, 0, true);
+        else put("null");
+    }
+
+    private void putJsonSummary(StudentRecord r) throws IOException {
+        if (r == null) {
+            put("null");
+            return;
+        }
+        put("{");
+        putJsonStudent(r);
+        put("}");
+    }
+
+    private void putJsonString(String s) throws IOException {
+        if (s == null) {
+            put("null");
+            return;
+        }
+        room(s.length() + 2);
+        buf[pos++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                room(2);
+                buf[pos++] = '\\';
+                buf[pos++] = c;
+            } else if (c < 0x20) {
+                room(6);
+                buf[pos++] = '\\';
+                buf[pos++] = 'u';
+                buf[pos++] = '0';
+                buf[pos++] = '0';
+                buf[pos++] = Character.forDigit(c >> 4, 16);
+                buf[pos++] = Character.forDigit(c & 0xF, 16);
+            } else {
+                room(1);
+                buf[pos++] = c;
+            }
+        }
+        room(1);
+        buf[pos++] = '"';
+    }
+
+    /**
+     * CSV field, quoted only when it holds a comma, quote or line break.
+     */
+    private void putCsvField(String s) throws IOException {
+        if (s == null) return;
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            put(s);
+            return;
+        }
+        room(s.length() * 2 + 2);
+        buf[pos++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') buf[pos++] = '"';
+            buf[pos++] = c;
+        }
+        buf[pos++] = '"';
+    }
+
+    /**
+     * {@code %-<width>s}: the string ("null" if null), then spaces up to width.
+     */
+    private void putPadded(String s, int width) throws IOException {
+        if (s == null) s = "null";
+        put(s);
+        int pad = width - s.length();
+        if (pad <= 0) return;
+        room(pad);
+        for (int i = 0; i < pad; i++) buf[pos++] = ' ';
+    }
+
+    /**
+     * {@code %<width>.2f}, right-aligned; width 0 means no padding.
+     * Machine output (CSV, JSON) always uses '.' whatever the locale.
+     */
+    private void putFixed(double v, int width, boolean machine) throws IOException {
+        double a = Math.abs(v);
+        if ((machine || localeAscii) && a < 1e6) {
+            double x = a * 100;
+            double whole = Math.floor(x);
+            double frac = x - whole;
+            // Formatter rounds the shortest decimal form half-up; away from a
+            // tie that is plain rounding of the binary value
+            if (Math.abs(frac - 0.5) > 1e-6) {
+                long cents = (long) whole + (frac > 0.5 ? 1 : 0);
+                boolean negative = Double.doubleToRawLongBits(v) < 0;
+                long units = cents / 100;
+                int hundredths = (int) (cents % 100);
+                int digits = 1;
+                for (long rest = units / 10; rest > 0; rest /= 10) digits++;
+                int length = (negative ? 1 : 0) + digits + 3;
+                room(Math.max(width, length));
+                for (int i = length; i < width; i++) buf[pos++] = ' ';
+                if (negative) buf[pos++] = '-';
+                for (int i = digits - 1; i >= 0; i--) {
+                    buf[pos + i] = (char) ('0' + units % 10);
+                    units /= 10;
+                }
+                pos += digits;
+                buf[pos++] = machine ? '.' : localePoint;
+                buf[pos++] = (char) ('0' + hundredths / 10);
+                buf[pos++] = (char) ('0' + hundredths % 10);
+                return;
+            }
+        }
+        String pattern = width > 0 ? "%" + width + ".2f" : "%.2f";
+        put(machine ? String.format(Locale.ROOT, pattern, v) : String.format(pattern, v));
+    }
+
+    private void put(String s) throws IOException {
+        int n = s.length();
+        room(n);
+        s.getChars(0, n, buf, pos);
+        pos += n;
+    }
+
+    /**
+     * Decimal symbols of the current default format locale, looked up
+     * again only when that locale changes.
+     */
+    private static LocaleDigits localeDigits() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        LocaleDigits d = digits;
+        if (d == null || !d.locale.equals(locale)) digits = d = new LocaleDigits(locale);
+        return d;
+    }
+
+    /**
+     * Make room for {@code n} more chars, growing the buffer only if one
+     * piece is larger than it.
+     */
+    private void room(int n) throws IOException {
+        if (pos + n <= buf.length) return;
+        drain();
+        if (n > buf.length) buf = new char[Math.max(n, buf.length * 2)];
+    }
+
+    /**
+     * Hand the buffer to the writer once it is half full; called between
+     * lines so the writer sees large chunks.
+     */
+    private void spill() throws IOException {
+        if (pos >= buf.length / 2) drain();
+    }
+
+    /**
+     * Hand everything buffered to the writer.
+     */
+    private void drain() throws IOException {
+        if (pos == 0) return;
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    /* ------------------------- types ------------------------- */
+
+    /** Decimal point and ASCII-ness of one locale's number format. */
+    private static final class LocaleDigits {
+        final Locale locale;
+        final char point;
+        final boolean ascii;
+
+        LocaleDigits(Locale locale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            this.locale = locale;
+            this.point = symbols.getDecimalSeparator();
+            this.ascii = symbols.getZeroDigit() == '0' && symbols.getMinusSign() == '-';
+        }
+    }
+}
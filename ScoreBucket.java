@@ -0,0 +1,293 @@
+import java.util.Arrays;
+
+/**
+ * Growable bucket of primitive {@code double} scores.
+ * Backs each coursework category in {@code StudentRecord} so scores are
+ * stored unboxed and summed without per-element unboxing.
+ * <p>
+ * A bucket can drop its lowest K scores without reordering the stored
+ * scores. The kept sum is added up in the same order the original
+ * list-based code used, so means match it bit for bit: insertion order
+ * when nothing is dropped (a running sum, O(1) per add), else ascending
+ * order. A dropping bucket keeps a second, sorted copy of its scores,
+ * updated on each add by binary search and one array shift, and sums its
+ * top {@code size - K} once after each change.
+ */
+public class ScoreBucket {
+
+    private static final double[] EMPTY = new double[0];
+
+    /**
+     * Scores in insertion order; only the first {@code size} slots are live.
+     */
+    private double[] scores = EMPTY;
+
+    /**
+     * Number of live scores.
+     */
+    private int size;
+
+    /**
+     * How many of the lowest scores are excluded from {@link #keptSum()}.
+     */
+    private int dropLowest;
+
+    /**
+     * Sum of the live scores, added in insertion order.
+     */
+    private double sum;
+
+    /**
+     * The live scores sorted ascending, kept only while dropping.
+     */
+    private double[] sorted = EMPTY;
+
+    /**
+     * Kept sum over {@code sorted} when dropping, or {@code NaN} once the
+     * scores have changed.
+     */
+    private double sortedKeptSum = Double.NaN;
+
+    /**
+     * Build an empty bucket.
+     */
+    public ScoreBucket() {
+    }
+
+    /* ========================== adders ========================== */
+
+    /**
+     * Append one score.
+     *
+     * @param score score out of 100
+     */
+    public void add(double score) {
+        if (size == scores.length) grow(size + 1);
+        scores[size++] = score;
+        appended(size - 1);
+    }
+
+    /**
+     * Append every score in the array, growing at most once.
+     *
+     * @param more scores out of 100
+     */
+    public void addAll(double[] more) {
+        if (size + more.length > scores.length) grow(size + more.length);
+        System.arraycopy(more, 0, scores, size, more.length);
+        size += more.length;
+        appended(size - more.length);
+    }
+
+    /**
+     * Append {@code src[from, to)}, growing at most once.
+     *
+     * @param src  source scores
+     * @param from first index, inclusive
+     * @param to   last index, exclusive
+     */
+    public void addAll(double[] src, int from, int to) {
+        int n = to - from;
+        if (size + n > scores.length) grow(size + n);
+        System.arraycopy(src, from, scores, size, n);
+        size += n;
+        appended(size - n);
+    }
+
+    /**
+     * Remove every score, keeping capacity and the drop-lowest setting.
+     */
+    public void clear() {
+        size = 0;
+        sum = 0.0;
+        sortedKeptSum = Double.NaN;
+    }
+
+    /**
+     * Replace the score at a position, keeping insertion order.
+     * Re-adds the running sum, and re-sorts the sorted copy when dropping.
+     *
+     * @param index 0-based position
+     * @param score new score out of 100
+     */
+    public void set(int index, double score) {
+        get(index);
+        scores[index] = score;
+        double total = 0.0;
+        for (int i = 0; i < size; i++) total += scores[i];
+        sum = total;
+        if (dropLowest > 0) resort();
+        sortedKeptSum = Double.NaN;
+    }
+
+    /* ====================== drop-lowest policy ==================== */
+
+    /**
+     * Exclude the lowest {@code count} scores from {@link #keptSum()}.
+     *
+     * @param count number of lowest scores to drop, {@code >= 0}
+     */
+    public void setDropLowest(int count) {
+        if (count < 0) throw new IllegalArgumentException("Drop count must be >= 0: " + count);
+        boolean wasDropping = dropLowest > 0;
+        this.dropLowest = count;
+        if (count == 0) sorted = EMPTY;
+        else if (!wasDropping) resort();
+        this.sortedKeptSum = Double.NaN;
+    }
+
+    /**
+     * Number of lowest scores excluded from {@link #keptSum()}.
+     *
+     * @return drop count
+     */
+    public int getDropLowest() {
+        return dropLowest;
+    }
+
+    /**
+     * Number of scores left after dropping the lowest ones.
+     *
+     * @return {@code max(0, size - dropLowest)}
+     */
+    public int keptCount() {
+        return Math.max(0, size - dropLowest);
+    }
+
+    /**
+     * Sum of the scores left after dropping the lowest ones: in insertion
+     * order if none are dropped, else in ascending order. O(1), or
+     * O(n) on the first call after a change when dropping.
+     *
+     * @return kept score sum
+     */
+    public double keptSum() {
+        if (dropLowest == 0) return sum;
+        if (size <= dropLowest) return 0.0;
+        if (Double.isNaN(sortedKeptSum)) {
+            double kept = 0.0;
+            for (int i = dropLowest; i < size; i++) kept += sorted[i];
+            sortedKeptSum = kept;
+        }
+        return sortedKeptSum;
+    }
+
+    /* ========================== queries ========================= */
+
+    /**
+     * Number of scores held.
+     *
+     * @return score count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * True if no scores have been added.
+     *
+     * @return whether the bucket is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Score at a position.
+     *
+     * @param index 0-based position
+     * @return score at {@code index}
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return scores[index];
+    }
+
+    /**
+     * Sum of all scores in insertion order.
+     *
+     * @return score sum
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * Copy of the live scores.
+     *
+     * @return new array of length {@link #size()}
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(scores, size);
+    }
+
+    /* ======================= presentation ========================= */
+
+    /**
+     * Same layout as {@code List<Double>.toString()}, e.g. {@code [95.0, 88.0]}.
+     *
+     * @return bracketed, comma-separated scores
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(2 + size * 7);
+        sb.append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(scores[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /* --------------------------- helpers --------------------------- */
+
+    /**
+     * Account for scores appended at {@code scores[from, size)}.
+     */
+    private void appended(int from) {
+        for (int i = from; i < size; i++) sum += scores[i];
+        if (dropLowest > 0) {
+            if (sorted.length < size) sorted = Arrays.copyOf(sorted, scores.length);
+            if (size - from == 1) insertSorted(from, scores[from]);
+            else mergeSorted(from);
+        }
+        sortedKeptSum = Double.NaN;
+    }
+
+    /**
+     * Insert one score into {@code sorted[0, n)}.
+     */
+    private void insertSorted(int n, double score) {
+        int at = Arrays.binarySearch(sorted, 0, n, score);
+        if (at < 0) at = -at - 1;
+        System.arraycopy(sorted, at, sorted, at + 1, n - at);
+        sorted[at] = score;
+    }
+
+    /**
+     * Merge {@code scores[from, size)} into {@code sorted[0, from)},
+     * filling from the back.
+     */
+    private void mergeSorted(int from) {
+        double[] more = Arrays.copyOfRange(scores, from, size);
+        Arrays.sort(more);
+        int i = from - 1;
+        int j = more.length - 1;
+        for (int k = size - 1; j >= 0; k--) {
+            sorted[k] = i >= 0 && Double.compare(sorted[i], more[j]) > 0 ? sorted[i--] : more[j--];
+        }
+    }
+
+    private void resort() {
+        if (sorted.length < size) sorted = new double[scores.length];
+        System.arraycopy(scores, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, Math.max(8, scores.length + (scores.length >> 1)));
+        scores = Arrays.copyOf(scores, newCapacity);
+    }
+}
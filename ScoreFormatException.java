@@ -0,0 +1,52 @@
+/**
+ * Malformed score text, with the 1-based line and column where it went wrong.
+ */
+public class ScoreFormatException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+    private final long line;
+    private final int column;
+
+    /**
+     * Build an error for a position in the input.
+     *
+     * @param message what was wrong
+     * @param line    1-based input line
+     * @param column  1-based column within the line
+     */
+    public ScoreFormatException(String message, long line, int column) {
+        super("line " + line + ", column " + column + ": " + message);
+        this.reason = message;
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * What was wrong, without the position.
+     *
+     * @return message as given at construction
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Input line of the error.
+     *
+     * @return 1-based line number
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Column of the error.
+     *
+     * @return 1-based column number
+     */
+    public int getColumn() {
+        return column;
+    }
+}
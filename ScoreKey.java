@@ -0,0 +1,33 @@
+/**
+ * A per-student score that leaderboard queries can rank by: the weighted
+ * total, one category mean (after drops), participation or an exam.
+ */
+public enum ScoreKey {
+    TOTAL,
+    PARTICIPATION,
+    READINGS,
+    LABS,
+    EXERCISES,
+    PROJECTS,
+    MIDTERM,
+    FINAL;
+
+    /**
+     * This score for a student.
+     *
+     * @param r student
+     * @return score, 0 to 100 for in-range inputs
+     */
+    public double of(StudentRecord r) {
+        switch (this) {
+            case TOTAL:         return r.totalScore();
+            case PARTICIPATION: return r.getParticipation();
+            case READINGS:      return r.unweightedReadingsScore();
+            case LABS:          return r.unweightedLabsScore();
+            case EXERCISES:     return r.unweightedExercisesScore();
+            case PROJECTS:      return r.unweightedProjectsScore();
+            case MIDTERM:       return r.getMidterm();
+            default:            return r.getFinalExam();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.function.DoubleConsumer;
+
+/**
+ * Parser for the score input format: one decimal per score, lists separated
+ * by commas, spaces allowed around each score (e.g. {@code 96.0, 85.1, 100}).
+ * <p>
+ * Scores are scanned straight out of a {@code CharSequence} range into a
+ * {@code DoubleConsumer}, with no split array, substrings or boxing. Plain
+ * decimals with up to 15 significant digits are converted exactly from a
+ * long mantissa and a power of ten; anything else (exponents, very long
+ * mantissas) falls back to {@code Double.parseDouble}, so results always
+ * match {@code Double.parseDouble(token.trim())}.
+ */
+public final class ScoreParser {
+
+    /** Highest score accepted by {@link #parseBoundedScore}. */
+    public static final double MAX_SCORE = 100.0;
+
+    /** Largest mantissa that converts exactly: 2^53. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Powers of ten that are exact doubles. */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ScoreParser() {
+    }
+
+    /**
+     * Parse a whole line of comma-separated scores.
+     *
+     * @param text scores, e.g. {@code 96.0, 85.1, 100.0}
+     * @param line 1-based line number for error messages
+     * @param sink receives each score in order
+     * @return number of scores parsed
+     * @throws ScoreFormatException if a score is missing or malformed
+     */
+    public static int parseList(CharSequence text, long line, DoubleConsumer sink) {
+        return parseList(text, 0, text.length(), line, sink);
+    }
+
+    /**
+     * Parse comma-separated scores in {@code text[from, to)}.
+     * Like {@code String.split(",")}, trailing empty entries are ignored.
+     *
+     * @param text source characters
+     * @param from first index, inclusive
+     * @param to   last index, exclusive
+     * @param line 1-based line number for error messages
+     * @param sink receives each score in order
+     * @return number of scores parsed
+     * @throws ScoreFormatException if a score is missing or malformed
+     */
+    public static int parseList(CharSequence text, int from, int to, long line, DoubleConsumer sink) {
+        int count = 0;
+        int start = from;
+        while (true) {
+            int end = start;
+            while (end < to && text.charAt(end) != ',') end++;
+            if (end == start && to > from && onlyCommas(text, start, to)) {
+                if (Metrics.ENABLED) Metrics.SCORES_PARSED.add(count);
+                return count;
+            }
+
+            sink.accept(parseScore(text, start, end, line));
+            count++;
+            if (end >= to) {
+                if (Metrics.ENABLED) Metrics.SCORES_PARSED.add(count);
+                return count;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Parse a single score from a whole line.
+     *
+     * @param text score text, surrounding spaces allowed
+     * @param line 1-based line number for error messages
+     * @return parsed score
+     * @throws ScoreFormatException if the text is not a number
+     */
+    public static double parseScore(CharSequence text, long line) {
+        return parseScore(text, 0, text.length(), line);
+    }
+
+    /**
+     * Parse a single score in {@code text[from, to)}.
+     *
+     * @param text source characters
+     * @param from first index, inclusive
+     * @param to   last index, exclusive
+     * @param line 1-based line number for error messages
+     * @return parsed score
+     * @throws ScoreFormatException if the range is not a number
+     */
+    public static double parseScore(CharSequence text, int from, int to, long line) {
+        int start = from;
+        int end = to;
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        if (start == end) throw new ScoreFormatException("expected a score", line, start + 1);
+
+        int i = start;
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) return slowParse(text, start, end, i, line);
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) scale++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return slowParse(text, start, end, i, line);
+            }
+        }
+        if (digits == 0 || scale >= POW10.length) return slowParse(text, start, end, i, line);
+
+        double value = scale == 0 ? (double) mantissa : mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a single score in {@code text[from, to)} and check that it is
+     * between 0 and {@link #MAX_SCORE}, for input that changes existing
+     * grades (delta files, the server).
+     *
+     * @param text source characters
+     * @param from first index, inclusive
+     * @param to   last index, exclusive
+     * @param line 1-based line number for error messages
+     * @return parsed score
+     * @throws ScoreFormatException if the range is not a number or is out of bounds
+     */
+    public static double parseBoundedScore(CharSequence text, int from, int to, long line) {
+        double score = parseScore(text, from, to, line);
+        if (!(score >= 0 && score <= MAX_SCORE)) {
+            while (text.charAt(from) <= ' ') from++;
+            while (text.charAt(to - 1) <= ' ') to--;
+            throw new ScoreFormatException("score " + text.subSequence(from, to) + " is outside 0 to "
+                    + (long) MAX_SCORE, line, from + 1);
+        }
+        return score;
+    }
+
+    /**
+     * Whether a line of line-based input is blank or a {@code #} comment.
+     *
+     * @param line input line
+     * @return true if the line should be skipped
+     */
+    public static boolean isBlankOrComment(CharSequence line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) <= ' ') i++;
+        return i == line.length() || line.charAt(i) == '#';
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private static boolean onlyCommas(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) != ',') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Defer to {@code Double.parseDouble} for forms the fast path skips.
+     *
+     * @param stop index where the fast path gave up, reported on failure
+     */
+    private static double slowParse(CharSequence text, int start, int end, int stop, long line) {
+        try {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        } catch (NumberFormatException e) {
+            int column = Math.min(stop, end - 1) + 1;
+            throw new ScoreFormatException(
+                    "not a number: \"" + text.subSequence(start, end) + "\"", line, column);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Department-wide gradebook partitioned by course and section. Each
+ * section is its own shard: a {@code GradeLedger} plus the weight vector
+ * its students are graded with, so sections of one course may weight
+ * categories differently.
+ * <p>
+ * Every query names the shards it needs, and a lookup or section query
+ * reads one shard only. Course and department statistics are built from
+ * per-section {@code LedgerStats}: the sections are reduced in parallel
+ * and the partials merged, so no records are copied into a combined
+ * ledger. A section's partial is cached until one of its records
+ * changes, so repeated roll-ups regrade only the sections that changed.
+ * <p>
+ * Courses and sections are kept in name order, and partials always merge
+ * in that order, so results do not depend on thread timing or on the
+ * order sections were added. Not thread-safe; records must not be
+ * mutated while statistics are being built.
+ */
+public class ShardedLedger {
+
+    /**
+     * Sections per course, by name.
+     */
+    private final Map<String, TreeMap<String, Section>> courses = new TreeMap<>();
+
+    private int sectionCount;
+
+    /**
+     * Build an empty department.
+     */
+    public ShardedLedger() {
+    }
+
+    /* ========================== sections ========================== */
+
+    /**
+     * Create a section.
+     *
+     * @param course  course name, e.g. {@code "CS 112"}
+     * @param section section name within the course, e.g. {@code "001"}
+     * @param weights category weights for the section's students, in
+     *                {@code StudentRecord.setWeights} order; copied
+     * @return the new section
+     * @throws IllegalArgumentException if the section already exists or
+     *                                  {@code weights} has the wrong length
+     */
+    public Section addSection(String course, String section, double[] weights) {
+        TreeMap<String, Section> sections = courses.computeIfAbsent(course, c -> new TreeMap<>());
+        if (sections.containsKey(section)) {
+            throw new IllegalArgumentException("Section already exists: " + course + " " + section);
+        }
+        Section s = new Section(course, section, weights);
+        sections.put(section, s);
+        sectionCount++;
+        return s;
+    }
+
+    /**
+     * Look up a section.
+     *
+     * @param course  course name
+     * @param section section name
+     * @return the section, or {@code null} if there is none
+     */
+    public Section section(String course, String section) {
+        TreeMap<String, Section> sections = courses.get(course);
+        return sections == null ? null : sections.get(section);
+    }
+
+    /**
+     * Remove a section and its records.
+     *
+     * @param course  course name
+     * @param section section name
+     * @return the removed section, or {@code null} if there was none
+     */
+    public Section removeSection(String course, String section) {
+        TreeMap<String, Section> sections = courses.get(course);
+        if (sections == null) return null;
+        Section removed = sections.remove(section);
+        if (removed == null) return null;
+        sectionCount--;
+        if (sections.isEmpty()) courses.remove(course);
+        return removed;
+    }
+
+    /**
+     * Course names, in order.
+     *
+     * @return read-only list of courses with at least one section
+     */
+    public List<String> courses() {
+        return Collections.unmodifiableList(new ArrayList<>(courses.keySet()));
+    }
+
+    /**
+     * Sections of one course, in name order.
+     *
+     * @param course course name
+     * @return read-only list, empty if the course has no sections
+     */
+    public List<Section> sections(String course) {
+        TreeMap<String, Section> sections = courses.get(course);
+        if (sections == null) return Collections.emptyList();
+        return Collections.unmodifiableList(new ArrayList<>(sections.values()));
+    }
+
+    /**
+     * Every section, by course and then section name.
+     *
+     * @return read-only list of all sections
+     */
+    public List<Section> sections() {
+        List<Section> out = new ArrayList<>(sectionCount);
+        for (TreeMap<String, Section> sections : courses.values()) out.addAll(sections.values());
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Number of sections across all courses.
+     *
+     * @return section count
+     */
+    public int sectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Number of records across all sections.
+     *
+     * @return record count
+     */
+    public long size() {
+        long n = 0;
+        for (TreeMap<String, Section> sections : courses.values()) {
+            for (Section s : sections.values()) n += s.ledger.size();
+        }
+        return n;
+    }
+
+    /* ========================== records =========================== */
+
+    /**
+     * Add a student to a section; see {@link Section#insertRecord}.
+     *
+     * @param course  course name
+     * @param section section name
+     * @param entry   grades for one student
+     * @throws IllegalArgumentException if the section does not exist
+     */
+    public void insertRecord(String course, String section, StudentRecord entry) {
+        require(course, section).insertRecord(entry);
+    }
+
+    /**
+     * Look up a student in one section.
+     *
+     * @param course  course name
+     * @param section section name
+     * @param gNumber G# to find
+     * @return matching record, or {@code null} if the section or the
+     *         student does not exist
+     */
+    public StudentRecord findRecord(String course, String section, String gNumber) {
+        Section s = section(course, section);
+        return s == null ? null : s.ledger.findRecord(gNumber);
+    }
+
+    /* ========================== statistics ======================== */
+
+    /**
+     * Statistics for one section.
+     *
+     * @param course  course name
+     * @param section section name
+     * @return statistics over the section's records; empty if the section
+     *         does not exist
+     */
+    public LedgerStats sectionStats(String course, String section) {
+        Section s = section(course, section);
+        return s == null ? new LedgerStats() : new LedgerStats().merge(s.stats());
+    }
+
+    /**
+     * Statistics for every section of one course, each graded with its
+     * own weights.
+     *
+     * @param course course name
+     * @return statistics over the course's records; empty if the course
+     *         does not exist
+     */
+    public LedgerStats courseStats(String course) {
+        TreeMap<String, Section> sections = courses.get(course);
+        if (sections == null) return new LedgerStats();
+        return statsOf(sections.values().toArray(new Section[0]));
+    }
+
+    /**
+     * Statistics for the whole department.
+     *
+     * @return statistics over every record in every section
+     */
+    public LedgerStats departmentStats() {
+        return statsOf(sections().toArray(new Section[0]));
+    }
+
+    /**
+     * Statistics for each course, computed in one parallel pass over all
+     * sections.
+     *
+     * @return course name to statistics, in course order
+     */
+    public Map<String, LedgerStats> statsByCourse() {
+        Section[] all = sections().toArray(new Section[0]);
+        ForkJoinPool.commonPool().invoke(new WarmTask(all, 0, all.length));
+        Map<String, LedgerStats> out = new TreeMap<>();
+        for (Section s : all) out.computeIfAbsent(s.course, c -> new LedgerStats()).merge(s.stats());
+        return out;
+    }
+
+    /* ------------------------- types ------------------------- */
+
+    /**
+     * One course section: its weights and its records.
+     */
+    public static final class Section {
+        private final String course;
+        private final String name;
+        private final double[] weights;
+        private final GradeLedger ledger = new GradeLedger();
+
+        /** Statistics over the section, or {@code null} once a record has changed. */
+        private LedgerStats cached;
+
+        private Section(String course, String name, double[] weights) {
+            if (weights.length != StudentRecord.WEIGHT_COUNT) {
+                throw new IllegalArgumentException("Expected " + StudentRecord.WEIGHT_COUNT + " weights, found " + weights.length);
+            }
+            this.course = course;
+            this.name = name;
+            this.weights = weights.clone();
+            ledger.addListener(new RecordListener() {
+                @Override
+                public void recordChanged(StudentRecord record) {
+                }
+
+                @Override
+                public void recordUpdated(StudentRecord record, GradeOp op, double value) {
+                    cached = null;
+                }
+            });
+        }
+
+        /** @return course name */
+        public String course() {
+            return course;
+        }
+
+        /** @return section name */
+        public String name() {
+            return name;
+        }
+
+        /** @return copy of the section's weights */
+        public double[] weights() {
+            return weights.clone();
+        }
+
+        /**
+         * Change the section's weights and regrade its students.
+         *
+         * @param weights new weights, in {@code StudentRecord.setWeights} order
+         */
+        public void setWeights(double[] weights) {
+            if (weights.length != StudentRecord.WEIGHT_COUNT) {
+                throw new IllegalArgumentException("Expected " + StudentRecord.WEIGHT_COUNT + " weights, found " + weights.length);
+            }
+            System.arraycopy(weights, 0, this.weights, 0, this.weights.length);
+            for (StudentRecord rec : ledger.getRecords()) rec.setWeights(this.weights);
+        }
+
+        /**
+         * Add a student, giving the record this section's weights. A
+         * record with the same G# in this section is replaced.
+         *
+         * @param entry grades for one student; its weights are overwritten
+         */
+        public void insertRecord(StudentRecord entry) {
+            entry.setWeights(weights);
+            ledger.insertRecord(entry);
+        }
+
+        /**
+         * The section's records, for lookups, ranking and reports. Records
+         * inserted directly keep their own weights.
+         *
+         * @return the section's ledger
+         */
+        public GradeLedger ledger() {
+            return ledger;
+        }
+
+        /**
+         * Statistics over this section, cached until a record changes.
+         * Shared; callers merge it into a fresh {@code LedgerStats}.
+         */
+        private LedgerStats stats() {
+            LedgerStats s = cached;
+            if (s == null) cached = s = ledger.stats();
+            return s;
+        }
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private Section require(String course, String section) {
+        Section s = section(course, section);
+        if (s == null) throw new IllegalArgumentException("No such section: " + course + " " + section);
+        return s;
+    }
+
+    /**
+     * Grade any stale sections in parallel, then merge every section's
+     * partial in order.
+     */
+    private static LedgerStats statsOf(Section[] sections) {
+        ForkJoinPool.commonPool().invoke(new WarmTask(sections, 0, sections.length));
+        LedgerStats out = new LedgerStats();
+        for (Section s : sections) out.merge(s.stats());
+        return out;
+    }
+
+    /**
+     * Fills each section's cached statistics, splitting the section
+     * range across the pool. Sections are disjoint, so tasks share no
+     * state; a section whose partial is still current costs nothing.
+     */
+    private static final class WarmTask extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final Section[] sections;
+        private final int lo;
+        private final int hi;
+
+        WarmTask(Section[] sections, int lo, int hi) {
+            this.sections = sections;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Void compute() {
+            if (hi - lo == 1) {
+                sections[lo].stats();
+                return null;
+            }
+            if (hi <= lo) return null;
+            int mid = (lo + hi) >>> 1;
+            WarmTask left = new WarmTask(sections, lo, mid);
+            left.fork();
+            new WarmTask(sections, mid, hi).compute();
+            left.join();
+            return null;
+        }
+    }
+}
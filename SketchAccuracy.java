@@ -0,0 +1,71 @@
+import java.util.SplittableRandom;
+
+/**
+ * Measures {@code LedgerSketch} against the exact answers of a
+ * {@code GradeLedger} holding the same synthetic students.
+ * <p>
+ * Usage: {@code java SketchAccuracy [students] [k] [sections]}, default
+ * 1000000 students, k 200 and 8 sections. Students are split round-robin
+ * into per-section sketches that are then merged, as a statewide run
+ * would combine districts. For each percentile it prints the exact total,
+ * the sketch's total and the rank error (how far, in percent of the
+ * class, the sketch's answer sits from the requested rank), then the
+ * worst rank error and the sketch's retained size.
+ */
+public class SketchAccuracy {
+
+    private static final long SEED = 42L;
+
+    private static final double[] PERCENTILES = {1, 5, 10, 25, 50, 75, 90, 95, 99};
+
+    public static void main(String[] args) {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : QuantileSketch.DEFAULT_K;
+        int sections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        GradeLedger ledger = new GradeLedger();
+        LedgerSketch[] parts = new LedgerSketch[sections];
+        for (int s = 0; s < sections; s++) parts[s] = new LedgerSketch(k);
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        for (int i = 0; i < students; i++) {
+            StudentRecord rec = SyntheticLedger.student(rnd, i);
+            ledger.insertRecord(rec);
+            parts[i % sections].insertRecord(rec);
+        }
+        LedgerSketch sketch = parts[0];
+        for (int s = 1; s < sections; s++) sketch.merge(parts[s]);
+
+        System.out.printf("%d students, k = %d, %d sections merged%n", students, k, sections);
+        System.out.printf("%10s %10s %10s %14s%n", "percentile", "exact", "sketch", "rank error %");
+        double worst = 0.0;
+        for (double p : PERCENTILES) {
+            double exact = ledger.recordAtPercentile(p).totalScore();
+            double approx = sketch.percentile(p);
+            double error = rankError(ledger, approx, p);
+            worst = Math.max(worst, error);
+            System.out.printf("%10.0f %10.2f %10.2f %14.3f%n", p, exact, approx, error);
+        }
+        double exactMedian = ledger.medianRecord().totalScore();
+        double error = rankError(ledger, sketch.medianTotal(), 100.0 * (students / 2) / students);
+        worst = Math.max(worst, error);
+        System.out.printf("%10s %10.2f %10.2f %14.3f%n", "median", exactMedian, sketch.medianTotal(), error);
+
+        System.out.printf("Average: exact %.6f, sketch %.6f%n", ledger.classAverage(), sketch.classAverage());
+        System.out.printf("Worst rank error: %.3f%% of the class%n", worst);
+        System.out.printf("Retained: %d values (%.1f KB) for %d students%n",
+                sketch.totals().retained(), sketch.totals().retained() * 8 / 1024.0, sketch.size());
+    }
+
+    /**
+     * Distance in percent of the class between the ranks the ledger gives
+     * {@code value} and the requested percentile; zero if the percentile
+     * falls anywhere among students tied at {@code value}.
+     */
+    private static double rankError(GradeLedger ledger, double value, double p) {
+        double below = ledger.percentileRank(value);
+        double atOrBelow = ledger.percentileRank(Math.nextUp(value));
+        if (p < below) return below - p;
+        if (p > atOrBelow) return p - atOrBelow;
+        return 0.0;
+    }
+}
@@ -1,7 +1,7 @@
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
 /**
  * Teacher-grade toolkit for a single student.
@@ -20,19 +20,37 @@ public class StudentRecord {
     private double finalExamScore;
 
     /* ----------------------- coursework buckets -------------------- */
-    private List<Double> labScores      = new ArrayList<>();
-    private List<Double> exerciseScores = new ArrayList<>();
-    private List<Double> projectScores  = new ArrayList<>();
-    private List<Double> readingScores  = new ArrayList<>();
+    private final ScoreBucket labScores      = new ScoreBucket();
+    private final ScoreBucket exerciseScores = new ScoreBucket();
+    private final ScoreBucket projectScores  = new ScoreBucket();
+    private final ScoreBucket readingScores  = new ScoreBucket();
+    {
+        readingScores.setDropLowest(15);
+    }
 
     /* --------------------------- weights --------------------------- */
-    private double wParticipation;
-    private double wReadings;
-    private double wLabs;
-    private double wExercises;
-    private double wProjects;
-    private double wMidterm;
-    private double wFinal;
+    /** Number of category weights. */
+    static final int WEIGHT_COUNT = 7;
+
+    /** [participation, readings, labs, exercises, projects, midterm, final] */
+    private final double[] weights = new double[WEIGHT_COUNT];
+
+    /** Letter cutoffs applied to the total. */
+    private LetterScale letterScale = LetterScale.DEFAULT;
+
+    /* ---------------------------- cache ---------------------------- */
+    /** True when any input changed since the cached values were computed. */
+    private boolean stale = true;
+    private double cachedReadings;
+    private double cachedLabs;
+    private double cachedExercises;
+    private double cachedProjects;
+    private double cachedTotal;
+    private String cachedLetter;
+
+    /* -------------------------- listeners -------------------------- */
+    private RecordListener[] listeners = NO_LISTENERS;
+    private static final RecordListener[] NO_LISTENERS = new RecordListener[0];
 
     /**
      * Create a record with identity and category weights.
@@ -57,6 +75,7 @@ public class StudentRecord {
      */
     public void addReading(double readingScore) {
         readingScores.add(readingScore);
+        changed(GradeOp.ADD_READING, readingScore);
     }
 
     /**
@@ -66,6 +85,7 @@ public class StudentRecord {
      */
     public void addLab(double labScore) {
         labScores.add(labScore);
+        changed(GradeOp.ADD_LAB, labScore);
     }
 
     /**
@@ -75,6 +95,7 @@ public class StudentRecord {
      */
     public void addExercise(double exerciseScore) {
         exerciseScores.add(exerciseScore);
+        changed(GradeOp.ADD_EXERCISE, exerciseScore);
     }
 
     /**
@@ -84,59 +105,225 @@ public class StudentRecord {
      */
     public void addProject(double projectScore) {
         projectScores.add(projectScore);
+        changed(GradeOp.ADD_PROJECT, projectScore);
+    }
+
+    /**
+     * Add many reading scores at once, reported to listeners as one
+     * {@code ADD_READINGS} update.
+     *
+     * @param readings scores out of 100
+     */
+    public void addReadings(double[] readings) {
+        if (readings.length == 0) return;
+        readingScores.addAll(readings);
+        changed(GradeOp.ADD_READINGS, readings.length);
+    }
+
+    /**
+     * Add many lab scores at once, reported to listeners as one
+     * {@code ADD_LABS} update.
+     *
+     * @param labs scores out of 100
+     */
+    public void addLabs(double[] labs) {
+        if (labs.length == 0) return;
+        labScores.addAll(labs);
+        changed(GradeOp.ADD_LABS, labs.length);
+    }
+
+    /**
+     * Add many exercise scores at once, reported to listeners as one
+     * {@code ADD_EXERCISES} update.
+     *
+     * @param exercises scores out of 100
+     */
+    public void addExercises(double[] exercises) {
+        if (exercises.length == 0) return;
+        exerciseScores.addAll(exercises);
+        changed(GradeOp.ADD_EXERCISES, exercises.length);
+    }
+
+    /**
+     * Add many project scores at once, reported to listeners as one
+     * {@code ADD_PROJECTS} update.
+     *
+     * @param projects scores out of 100
+     */
+    public void addProjects(double[] projects) {
+        if (projects.length == 0) return;
+        projectScores.addAll(projects);
+        changed(GradeOp.ADD_PROJECTS, projects.length);
+    }
+
+    /* ========================= replacers ========================== */
+
+    /**
+     * Replace one reading score, e.g. a regrade.
+     *
+     * @param index 0-based position in entry order
+     * @param score new score out of 100
+     */
+    public void replaceReading(int index, double score) {
+        readingScores.set(index, score);
+        changed(GradeOp.REPLACE_READING, score);
+    }
+
+    /**
+     * Replace one lab score.
+     *
+     * @param index 0-based position in entry order
+     * @param score new score out of 100
+     */
+    public void replaceLab(int index, double score) {
+        labScores.set(index, score);
+        changed(GradeOp.REPLACE_LAB, score);
+    }
+
+    /**
+     * Replace one exercise score.
+     *
+     * @param index 0-based position in entry order
+     * @param score new score out of 100
+     */
+    public void replaceExercise(int index, double score) {
+        exerciseScores.set(index, score);
+        changed(GradeOp.REPLACE_EXERCISE, score);
+    }
+
+    /**
+     * Replace one project score.
+     *
+     * @param index 0-based position in entry order
+     * @param score new score out of 100
+     */
+    public void replaceProject(int index, double score) {
+        projectScores.set(index, score);
+        changed(GradeOp.REPLACE_PROJECT, score);
     }
 
     /* ======================= unweighted means ===================== */
 
     /**
-     * Average of readings after dropping the lowest 15.
-     * If fewer than 16 readings, returns 100.
+     * Average of readings after dropping the lowest 15 (see {@link #setReadingDrops(int)}).
+     * If no readings remain after the drop, returns 100.
      *
      * @return unweighted readings average
      */
     public double unweightedReadingsScore() {
-        if (readingScores.size() < 16) return 100.0;
-
-        Collections.sort(readingScores);
-        double sum = 0.0;
-        for (int i = 15; i < readingScores.size(); i++) sum += readingScores.get(i);
-        return sum / (readingScores.size() - 15);
+        refresh();
+        return cachedReadings;
     }
 
     /**
-     * Average of labs; if none, returns 100.
+     * Average of labs after dropping the lowest {@link #setLabDrops(int)} (none by default);
+     * if none remain, returns 100.
      *
      * @return unweighted labs average
      */
     public double unweightedLabsScore() {
-        if (labScores.isEmpty()) return 100.0;
-        double sum = 0.0;
-        for (double s : labScores) sum += s;
-        return sum / labScores.size();
+        refresh();
+        return cachedLabs;
     }
 
     /**
-     * Average of exercises; if none, returns 100.
+     * Average of exercises after dropping the lowest {@link #setExerciseDrops(int)} (none by default);
+     * if none remain, returns 100.
      *
      * @return unweighted exercises average
      */
     public double unweightedExercisesScore() {
-        if (exerciseScores.isEmpty()) return 100.0;
-        double sum = 0.0;
-        for (double s : exerciseScores) sum += s;
-        return sum / exerciseScores.size();
+        refresh();
+        return cachedExercises;
     }
 
     /**
-     * Average of projects; if none, returns 100.
+     * Average of projects after dropping the lowest {@link #setProjectDrops(int)} (none by default);
+     * if none remain, returns 100.
      *
      * @return unweighted projects average
      */
     public double unweightedProjectsScore() {
-        if (projectScores.isEmpty()) return 100.0;
-        double sum = 0.0;
-        for (double s : projectScores) sum += s;
-        return sum / projectScores.size();
+        refresh();
+        return cachedProjects;
+    }
+
+    /* ====================== drop-lowest policy ==================== */
+
+    /**
+     * Set how many of the lowest readings are dropped (15 by default).
+     *
+     * @param count readings to drop, {@code >= 0}
+     */
+    public void setReadingDrops(int count) {
+        readingScores.setDropLowest(count);
+        changed(GradeOp.SET_READING_DROPS, count);
+    }
+
+    /**
+     * Set how many of the lowest labs are dropped (0 by default).
+     *
+     * @param count labs to drop, {@code >= 0}
+     */
+    public void setLabDrops(int count) {
+        labScores.setDropLowest(count);
+        changed(GradeOp.SET_LAB_DROPS, count);
+    }
+
+    /**
+     * Set how many of the lowest exercises are dropped (0 by default).
+     *
+     * @param count exercises to drop, {@code >= 0}
+     */
+    public void setExerciseDrops(int count) {
+        exerciseScores.setDropLowest(count);
+        changed(GradeOp.SET_EXERCISE_DROPS, count);
+    }
+
+    /**
+     * Set how many of the lowest projects are dropped (0 by default).
+     *
+     * @param count projects to drop, {@code >= 0}
+     */
+    public void setProjectDrops(int count) {
+        projectScores.setDropLowest(count);
+        changed(GradeOp.SET_PROJECT_DROPS, count);
+    }
+
+    /**
+     * Number of lowest readings dropped.
+     *
+     * @return reading drop count
+     */
+    public int getReadingDrops() {
+        return readingScores.getDropLowest();
+    }
+
+    /**
+     * Number of lowest labs dropped.
+     *
+     * @return lab drop count
+     */
+    public int getLabDrops() {
+        return labScores.getDropLowest();
+    }
+
+    /**
+     * Number of lowest exercises dropped.
+     *
+     * @return exercise drop count
+     */
+    public int getExerciseDrops() {
+        return exerciseScores.getDropLowest();
+    }
+
+    /**
+     * Number of lowest projects dropped.
+     *
+     * @return project drop count
+     */
+    public int getProjectDrops() {
+        return projectScores.getDropLowest();
     }
 
     /* ======================== rules & totals ====================== */
@@ -162,47 +349,25 @@ public class StudentRecord {
     /**
      * Weighted total across all components using current weights.
      * If final beats midterm, the midterm weight is applied to the final instead.
+     * Cached until the next adder or setter call.
      *
      * @return overall numeric score
      */
     public double totalScore() {
-        double total = 0.0;
-
-        total += (participationScore * wParticipation);
-        total += (unweightedExercisesScore() * wExercises);
-        total += (unweightedProjectsScore()  * wProjects);
-        total += (unweightedLabsScore()      * wLabs);
-        total += (unweightedReadingsScore()  * wReadings);
-
-        if (finalReplacesMidterm()) {
-            total += (finalExamScore * wFinal) + (finalExamScore * wMidterm);
-        } else {
-            total += (finalExamScore * wFinal) + (midtermScore   * wMidterm);
-        }
-        return total;
+        if (Metrics.ENABLED) Metrics.TOTAL_SCORE_CALLS.increment();
+        refresh();
+        return cachedTotal;
     }
 
     /**
-     * Letter from totalScore(), with final-exam fail => F.
+     * Letter from totalScore() under {@link #getLetterScale()}, with final-exam fail => F.
+     * Cached until the next adder or setter call.
      *
      * @return letter grade
      */
     public String letterGrade() {
-        if (!finalIsPassing()) return "F";
-
-        double t = totalScore();
-        if      (t < 60) return "F";
-        else if (t < 70) return "D";
-        else if (t < 72) return "C-";
-        else if (t < 78) return "C";
-        else if (t < 80) return "C+";
-        else if (t < 82) return "B-";
-        else if (t < 88) return "B";
-        else if (t < 90) return "B+";
-        else if (t < 92) return "A-";
-        else if (t < 98) return "A";
-        else if (t <= 100) return "A+";
-        return "Not Within Range";
+        refresh();
+        return cachedLetter;
     }
 
     /* ===================== getters (public API) ==================== */
@@ -252,6 +417,44 @@ public class StudentRecord {
         return this.studentId;
     }
 
+    /**
+     * Category weights.
+     *
+     * @return copy of [participation, readings, labs, exercises, projects, midterm, final]
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Letter cutoffs used by {@link #letterGrade()}.
+     *
+     * @return letter scale
+     */
+    public LetterScale getLetterScale() {
+        return letterScale;
+    }
+
+    /** Reading scores, for in-package bulk readers; do not mutate. */
+    ScoreBucket readingBucket() {
+        return readingScores;
+    }
+
+    /** Lab scores, for in-package bulk readers; do not mutate. */
+    ScoreBucket labBucket() {
+        return labScores;
+    }
+
+    /** Exercise scores, for in-package bulk readers; do not mutate. */
+    ScoreBucket exerciseBucket() {
+        return exerciseScores;
+    }
+
+    /** Project scores, for in-package bulk readers; do not mutate. */
+    ScoreBucket projectBucket() {
+        return projectScores;
+    }
+
     /* ===================== setters (public API) ==================== */
 
     /**
@@ -261,6 +464,7 @@ public class StudentRecord {
      */
     public void setParticipation(double participation) {
         this.participationScore = participation;
+        changed(GradeOp.SET_PARTICIPATION, participation);
     }
 
     /**
@@ -270,6 +474,7 @@ public class StudentRecord {
      */
     public void setMidterm(double midterm) {
         this.midtermScore = midterm;
+        changed(GradeOp.SET_MIDTERM, midterm);
     }
 
     /**
@@ -279,6 +484,7 @@ public class StudentRecord {
      */
     public void setFinalExam(double finalExam) {
         this.finalExamScore = finalExam;
+        changed(GradeOp.SET_FINAL, finalExam);
     }
 
     /**
@@ -287,7 +493,10 @@ public class StudentRecord {
      * @param studentName name string
      */
     public void setStudentName(String studentName) {
+        String previous = this.name;
         this.name = studentName;
+        for (RecordListener l : listeners) l.nameChanged(this, previous);
+        for (RecordListener l : listeners) l.recordUpdated(this, GradeOp.SET_NAME, Double.NaN);
     }
 
     /**
@@ -296,7 +505,9 @@ public class StudentRecord {
      * @param gNumber id string
      */
     public void setGNumber(String gNumber) {
+        String previous = this.studentId;
         this.studentId = gNumber;
+        for (RecordListener l : listeners) l.gNumberChanged(this, previous);
     }
 
     /**
@@ -305,48 +516,129 @@ public class StudentRecord {
      * @param weights [participation, readings, labs, exercises, projects, midterm, final]
      */
     public void setWeights(double[] weights) {
-        this.wParticipation = weights[0];
-        this.wReadings      = weights[1];
-        this.wLabs          = weights[2];
-        this.wExercises     = weights[3];
-        this.wProjects      = weights[4];
-        this.wMidterm       = weights[5];
-        this.wFinal         = weights[6];
+        System.arraycopy(weights, 0, this.weights, 0, WEIGHT_COUNT);
+        changed(GradeOp.SET_WEIGHTS, Double.NaN);
+    }
+
+    /**
+     * Set the letter cutoffs, e.g. a curved {@code LetterScale}.
+     *
+     * @param scale letter scale
+     */
+    public void setLetterScale(LetterScale scale) {
+        this.letterScale = scale;
+        changed(GradeOp.SET_LETTER_SCALE, Double.NaN);
+    }
+
+    /* ========================= listeners ========================== */
+
+    /**
+     * Register a callback for changes to this record.
+     * {@code recordChanged} fires once per stale transition,
+     * {@code recordUpdated} once per mutation, after the other callbacks.
+     *
+     * @param listener callback to add
+     */
+    public void addListener(RecordListener listener) {
+        RecordListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+     * Unregister a callback added with {@link #addListener(RecordListener)}.
+     *
+     * @param listener callback to remove
+     */
+    public void removeListener(RecordListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                RecordListener[] shrunk = new RecordListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
+            }
+        }
     }
 
     /* ======================= presentation ========================= */
 
     @Override
     public String toString() {
-        String nl = System.lineSeparator();
-        StringBuilder sb = new StringBuilder();
-        sb.append("┌──────────────────────── STUDENT ────────────────────────┐").append(nl);
-        sb.append(String.format("│ Name : %-46s │%n", getStudentName()));
-        sb.append(String.format("│ G#   : %-46s │%n", getGNumber()));
-        sb.append("├────────────────────── RAW SCORES ───────────────────────┤").append(nl);
-        sb.append(String.format("│ Participation : %6.2f                                 │%n", getParticipation()));
-        sb.append(String.format("│ Readings      : %6.2f  %s│%n", unweightedReadingsScore(),
-                padRight(readingScores.toString(), 23)));
-        sb.append(String.format("│ Labs          : %6.2f  %s│%n", unweightedLabsScore(),
-                padRight(labScores.toString(), 23)));
-        sb.append(String.format("│ Exercises     : %6.2f  %s│%n", unweightedExercisesScore(),
-                padRight(exerciseScores.toString(), 23)));
-        sb.append(String.format("│ Projects      : %6.2f  %s│%n", unweightedProjectsScore(),
-                padRight(projectScores.toString(), 23)));
-        sb.append(String.format("│ Midterm       : %6.2f                                 │%n", getMidterm()));
-        sb.append(String.format("│ Final Exam    : %6.2f                                 │%n", getFinalExam()));
-        sb.append("├─────────────────────── SUMMARY ─────────────────────────┤").append(nl);
-        sb.append(String.format("│ Total: %6.2f   Letter: %-3s                         │%n", totalScore(), letterGrade()));
-        sb.append("└─────────────────────────────────────────────────────────┘");
-        return sb.toString();
+        StringWriter out = new StringWriter(1024);
+        try {
+            new ReportWriter(out, 1024).writeText(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter does not throw
+        }
+        return out.toString();
     }
 
     /* --------------------------- helpers --------------------------- */
 
-    private static String padRight(String s, int width) {
-        if (s.length() >= width) return s.substring(0, width);
-        StringBuilder sb = new StringBuilder(s);
-        while (sb.length() < width) sb.append(' ');
-        return sb.toString();
+    /**
+     * Mark the cached grade stale and, on the first change since it was
+     * last computed, tell the listeners; then report the mutation. The
+     * record is consistent before any {@code recordUpdated} runs, so a
+     * listener that throws there cannot leave it half-updated.
+     */
+    private void changed(GradeOp op, double value) {
+        if (!stale) {
+            stale = true;
+            for (RecordListener l : listeners) l.recordChanged(this);
+        }
+        for (RecordListener l : listeners) l.recordUpdated(this, op, value);
+    }
+
+    /**
+     * Recompute bucket means, total and letter if any input changed.
+     */
+    private void refresh() {
+        if (!stale) return;
+        long t0 = Metrics.ENABLED ? System.nanoTime() : 0L;
+
+        cachedReadings  = mean(readingScores);
+        cachedLabs      = mean(labScores);
+        cachedExercises = mean(exerciseScores);
+        cachedProjects  = mean(projectScores);
+
+        cachedTotal  = weightedTotal(participationScore, cachedReadings, cachedLabs,
+                cachedExercises, cachedProjects, midtermScore, finalExamScore, weights);
+        cachedLetter = letterScale.letter(cachedTotal, finalIsPassing());
+        stale = false;
+        if (Metrics.ENABLED) Metrics.GRADE_REFRESH.record(t0);
+    }
+
+    /**
+     * Weighted total from component scores; shared with the columnar and
+     * scenario code so every path adds the same terms in the same order.
+     * If final beats midterm, the midterm weight is applied to the final instead.
+     *
+     * @param w weights in {@link #setWeights(double[])} order
+     * @return overall numeric score
+     */
+    static double weightedTotal(double participation, double readings, double labs,
+                                double exercises, double projects,
+                                double midterm, double finalExam, double[] w) {
+        double total = 0.0;
+        total += (participation * w[0]);
+        total += (exercises * w[3]);
+        total += (projects  * w[4]);
+        total += (labs      * w[2]);
+        total += (readings  * w[1]);
+
+        if (finalExam > midterm) {
+            total += (finalExam * w[6]) + (finalExam * w[5]);
+        } else {
+            total += (finalExam * w[6]) + (midterm   * w[5]);
+        }
+        return total;
+    }
+
+    private static double mean(ScoreBucket bucket) {
+        int kept = bucket.keptCount();
+        if (kept == 0) return 100.0;
+        return bucket.keptSum() / kept;
     }
 }
@@ -0,0 +1,94 @@
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic students for benchmarks and accuracy tools.
+ * The same seed always produces the same records.
+ */
+public class SyntheticLedger {
+
+    /**
+     * Default category weights, as in {@code GradesApp}.
+     */
+    public static final double[] WEIGHTS = {0.05, 0.05, 0.15, 0.09, 0.21, 0.2, 0.25};
+
+    private SyntheticLedger() {
+    }
+
+    /**
+     * Build one student with a realistic spread of scores: 3 projects,
+     * 4 exercises, 8 labs and 20 readings around a per-student ability.
+     *
+     * @param rnd   random source
+     * @param index student number, used for name and G#
+     * @return new record
+     */
+    public static StudentRecord student(SplittableRandom rnd, long index) {
+        StudentRecord rec = new StudentRecord("Student " + index, gNumber(index), WEIGHTS);
+        double ability = 55 + rnd.nextDouble() * 45;
+        rec.addProjects(scores(rnd, 3, ability));
+        rec.addExercises(scores(rnd, 4, ability));
+        rec.addLabs(scores(rnd, 8, ability));
+        rec.addReadings(scores(rnd, 20, ability));
+        rec.setParticipation(score(rnd, ability));
+        rec.setMidterm(score(rnd, ability));
+        rec.setFinalExam(score(rnd, ability));
+        return rec;
+    }
+
+    /**
+     * Build {@code count} students.
+     *
+     * @param count number of students
+     * @param seed  random seed
+     * @return new records
+     */
+    public static StudentRecord[] students(int count, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        StudentRecord[] out = new StudentRecord[count];
+        for (int i = 0; i < count; i++) out[i] = student(rnd, i);
+        return out;
+    }
+
+    /**
+     * Build a ledger of {@code count} students.
+     *
+     * @param count number of students
+     * @param seed  random seed
+     * @return new ledger
+     */
+    public static GradeLedger ledger(int count, long seed) {
+        GradeLedger ledger = new GradeLedger();
+        SplittableRandom rnd = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) ledger.insertRecord(student(rnd, i));
+        return ledger;
+    }
+
+    /**
+     * G# for a student number, e.g. {@code G00000042}.
+     *
+     * @param index student number
+     * @return id string
+     */
+    public static String gNumber(long index) {
+        String digits = Long.toString(index);
+        StringBuilder sb = new StringBuilder(9).append('G');
+        for (int i = digits.length(); i < 8; i++) sb.append('0');
+        return sb.append(digits).toString();
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private static double[] scores(SplittableRandom rnd, int count, double ability) {
+        double[] out = new double[count];
+        for (int i = 0; i < count; i++) out[i] = score(rnd, ability);
+        return out;
+    }
+
+    /**
+     * Score near {@code ability}, rounded to one decimal and clamped to [0, 100].
+     */
+    private static double score(SplittableRandom rnd, double ability) {
+        double s = ability + (rnd.nextDouble() - 0.5) * 30;
+        return Math.round(Math.max(0, Math.min(100, s)) * 10) / 10.0;
+    }
+}
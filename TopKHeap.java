@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded binary heap that keeps the best {@code capacity} students seen
+ * so far by one score. The root is the worst kept entry, so each offer
+ * costs one compare when it does not qualify and O(log K) when it does.
+ * <p>
+ * "Best" is the highest score for a top list and the lowest for a bottom
+ * list; ties go to the smaller insertion sequence, so results match a
+ * stable sort of the ledger. Scores compare as {@code Double.compare}
+ * does, with NaN above every number.
+ */
+class TopKHeap {
+
+    private final boolean highest;
+    private final double[] keys;
+    private final long[] seqs;
+    private final StudentRecord[] records;
+    private int size;
+
+    /**
+     * @param capacity entries to keep
+     * @param highest  {@code true} to keep the highest scores, {@code false} the lowest
+     */
+    TopKHeap(int capacity, boolean highest) {
+        this.highest = highest;
+        this.keys = new double[capacity];
+        this.seqs = new long[capacity];
+        this.records = new StudentRecord[capacity];
+    }
+
+    /**
+     * Consider one student.
+     *
+     * @param key    its score
+     * @param seq    its insertion sequence
+     * @param record the student
+     */
+    void offer(double key, long seq, StudentRecord record) {
+        if (size < keys.length) {
+            set(size, key, seq, record);
+            siftUp(size++);
+        } else if (size > 0 && better(key, seq, keys[0], seqs[0])) {
+            set(0, key, seq, record);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empty the heap into a list, best first.
+     *
+     * @param from number of leading entries to skip
+     * @return kept students after the first {@code from}, best first
+     */
+    List<StudentRecord> drain(int from) {
+        StudentRecord[] sorted = new StudentRecord[size];
+        // each pop removes the worst remaining entry
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = records[0];
+            size--;
+            set(0, keys[size], seqs[size], records[size]);
+            records[size] = null;
+            siftDown(0);
+        }
+        List<StudentRecord> out = new ArrayList<>(Math.max(0, sorted.length - from));
+        for (int i = from; i < sorted.length; i++) out.add(sorted[i]);
+        return out;
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private boolean better(double key, long seq, double otherKey, long otherSeq) {
+        int c = Double.compare(key, otherKey);
+        if (c != 0) return highest ? c > 0 : c < 0;
+        return seq < otherSeq;
+    }
+
+    /** Whether slot {@code i} should sit above slot {@code j}, i.e. is worse. */
+    private boolean worse(int i, int j) {
+        return better(keys[j], seqs[j], keys[i], seqs[i]);
+    }
+
+    private void set(int i, double key, long seq, StudentRecord record) {
+        keys[i] = key;
+        seqs[i] = seq;
+        records[i] = record;
+    }
+
+    private void swap(int i, int j) {
+        double k = keys[i];
+        long s = seqs[i];
+        StudentRecord r = records[i];
+        set(i, keys[j], seqs[j], records[j]);
+        set(j, k, s, r);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) return;
+            if (child + 1 < size && worse(child + 1, child)) child++;
+            if (!worse(child, i)) return;
+            swap(i, child);
+            i = child;
+        }
+    }
+}
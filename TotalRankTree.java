@@ -0,0 +1,292 @@
+import java.util.function.Consumer;
+
+/**
+ * Order-statistic AVL tree of {@code StudentRecord}s keyed by total score.
+ * Ties on total are ordered by insertion sequence, which matches a stable
+ * sort of the ledger in insertion order. Every node tracks its subtree size,
+ * so rank and k-th selection are O(log N).
+ * <p>
+ * The smallest and largest nodes are cached, so {@link #first()} and
+ * {@link #last()} are O(1); they are re-found only when an insert or
+ * removal replaces them. The earliest-inserted node among those tied for
+ * the largest total ({@link #firstOfLast()}) is cached until the next
+ * insert or removal.
+ */
+class TotalRankTree {
+
+    /**
+     * One ledger entry. The key ({@code total}, {@code seq}) must not be
+     * changed while the node is in the tree.
+     */
+    static final class Node {
+        final StudentRecord record;
+        final long seq;
+        double total;
+
+        /** Next node for the same record, if it was inserted more than once. */
+        Node sameRecord;
+
+        /** Neighbours in the ledger's insertion order. */
+        Node before;
+        Node after;
+
+        private Node left;
+        private Node right;
+        private int height = 1;
+        private int size = 1;
+
+        Node(StudentRecord record, long seq) {
+            this.record = record;
+            this.seq = seq;
+        }
+    }
+
+    private Node root;
+
+    /** Smallest and largest nodes, or {@code null} if empty. */
+    private Node first;
+    private Node last;
+
+    /** Earliest node tied with {@code last}, or {@code null} until asked for. */
+    private Node firstOfLast;
+
+    /**
+     * Number of nodes.
+     *
+     * @return tree size
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Insert a detached node under its current key.
+     *
+     * @param node node to add
+     */
+    void insert(Node node) {
+        node.left = null;
+        node.right = null;
+        node.height = 1;
+        node.size = 1;
+        root = insert(root, node);
+        if (first == null || less(node, first)) first = node;
+        if (last == null || less(last, node)) last = node;
+        firstOfLast = null;
+    }
+
+    /**
+     * Remove a node that is in the tree.
+     *
+     * @param node node to remove
+     */
+    void remove(Node node) {
+        root = remove(root, node);
+        if (node == first) first = leftmost(root);
+        if (node == last) last = rightmost(root);
+        firstOfLast = null;
+    }
+
+    /**
+     * Smallest key.
+     *
+     * @return first node, or {@code null} if empty
+     */
+    Node first() {
+        return first;
+    }
+
+    /**
+     * Largest key.
+     *
+     * @return last node, or {@code null} if empty
+     */
+    Node last() {
+        return last;
+    }
+
+    /**
+     * Earliest inserted of the nodes with the largest total: O(1) when
+     * nothing was inserted or removed since the last call, else O(log N).
+     *
+     * @return that node, or {@code null} if empty
+     */
+    Node firstOfLast() {
+        if (firstOfLast == null && last != null) firstOfLast = select(countBelow(last.total));
+        return firstOfLast;
+    }
+
+    /**
+     * Node at a 0-based rank in ascending order.
+     *
+     * @param k rank, {@code 0 <= k < size()}
+     * @return k-th smallest node
+     */
+    Node select(int k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("Rank " + k + " out of bounds for size " + size());
+        }
+        Node t = root;
+        while (true) {
+            int leftSize = size(t.left);
+            if (k < leftSize) {
+                t = t.left;
+            } else if (k == leftSize) {
+                return t;
+            } else {
+                k -= leftSize + 1;
+                t = t.right;
+            }
+        }
+    }
+
+    /**
+     * Number of nodes whose total is strictly below {@code total}.
+     *
+     * @param total score to compare against
+     * @return count of smaller totals
+     */
+    int countBelow(double total) {
+        int count = 0;
+        Node t = root;
+        while (t != null) {
+            if (Double.compare(t.total, total) < 0) {
+                count += size(t.left) + 1;
+                t = t.right;
+            } else {
+                t = t.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of nodes whose total is at or below {@code total}.
+     *
+     * @param total score to compare against
+     * @return count of smaller or equal totals
+     */
+    int countAtOrBelow(double total) {
+        int count = 0;
+        Node t = root;
+        while (t != null) {
+            if (Double.compare(t.total, total) <= 0) {
+                count += size(t.left) + 1;
+                t = t.right;
+            } else {
+                t = t.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Visit every node in ascending key order.
+     *
+     * @param action callback per node
+     */
+    void forEachAscending(Consumer<Node> action) {
+        forEach(root, action);
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    private static boolean less(Node a, Node b) {
+        int c = Double.compare(a.total, b.total);
+        return c < 0 || (c == 0 && a.seq < b.seq);
+    }
+
+    private static Node leftmost(Node t) {
+        if (t == null) return null;
+        while (t.left != null) t = t.left;
+        return t;
+    }
+
+    private static Node rightmost(Node t) {
+        if (t == null) return null;
+        while (t.right != null) t = t.right;
+        return t;
+    }
+
+    private static void forEach(Node t, Consumer<Node> action) {
+        while (t != null) {
+            forEach(t.left, action);
+            action.accept(t);
+            t = t.right;
+        }
+    }
+
+    private static Node insert(Node t, Node node) {
+        if (t == null) return node;
+        if (less(node, t)) t.left = insert(t.left, node);
+        else               t.right = insert(t.right, node);
+        return balance(t);
+    }
+
+    private static Node remove(Node t, Node node) {
+        if (t == null) return null;
+        if (t == node) {
+            if (t.left == null) return t.right;
+            if (t.right == null) return t.left;
+            Node successor = t.right;
+            while (successor.left != null) successor = successor.left;
+            successor.right = removeFirst(t.right);
+            successor.left = t.left;
+            return balance(successor);
+        }
+        if (less(node, t)) t.left = remove(t.left, node);
+        else               t.right = remove(t.right, node);
+        return balance(t);
+    }
+
+    private static Node removeFirst(Node t) {
+        if (t.left == null) return t.right;
+        t.left = removeFirst(t.left);
+        return balance(t);
+    }
+
+    private static Node balance(Node t) {
+        update(t);
+        int skew = height(t.left) - height(t.right);
+        if (skew > 1) {
+            if (height(t.left.left) < height(t.left.right)) t.left = rotateLeft(t.left);
+            return rotateRight(t);
+        }
+        if (skew < -1) {
+            if (height(t.right.right) < height(t.right.left)) t.right = rotateRight(t.right);
+            return rotateLeft(t);
+        }
+        return t;
+    }
+
+    private static Node rotateRight(Node t) {
+        Node l = t.left;
+        t.left = l.right;
+        l.right = t;
+        update(t);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node t) {
+        Node r = t.right;
+        t.right = r.left;
+        r.left = t;
+        update(t);
+        update(r);
+        return r;
+    }
+
+    private static void update(Node t) {
+        t.height = Math.max(height(t.left), height(t.right)) + 1;
+        t.size = size(t.left) + size(t.right) + 1;
+    }
+
+    private static int height(Node t) {
+        return t == null ? 0 : t.height;
+    }
+
+    private static int size(Node t) {
+        return t == null ? 0 : t.size;
+    }
+}
@@ -0,0 +1,295 @@
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * What-if engine for comparing weighting schemes across a whole ledger.
+ * <p>
+ * Each student's seven weighted components are read once into parallel
+ * arrays: participation, the four category means (after drops), and the
+ * effective midterm and final, with the final-replaces-midterm rule
+ * already applied. After that, totals depend only on the weight vector.
+ * {@link #evaluate(double[][])} grades every candidate vector in one pass
+ * over the rows, a block at a time. The totals loop is straight-line
+ * arithmetic over primitive arrays, which the JIT can vectorize.
+ * <p>
+ * Totals match {@code StudentRecord.totalScore()} bit for bit under the
+ * same weights. The components are a copy: rebuild the engine after the
+ * records change.
+ */
+public class WeightScenarios {
+
+    /**
+     * Rows per block. One block of totals (32 KB) stays in cache while
+     * every scenario is graded over it.
+     */
+    private static final int BLOCK = 4096;
+
+    private final int size;
+    private final double[] participation;
+    private final double[] readings;
+    private final double[] labs;
+    private final double[] exercises;
+    private final double[] projects;
+    private final double[] midterm;
+    private final double[] finalExam;
+
+    private WeightScenarios(int size) {
+        this.size = size;
+        this.participation = new double[size];
+        this.readings = new double[size];
+        this.labs = new double[size];
+        this.exercises = new double[size];
+        this.projects = new double[size];
+        this.midterm = new double[size];
+        this.finalExam = new double[size];
+    }
+
+    /**
+     * Cache the components of every record in a ledger.
+     *
+     * @param ledger ledger to read
+     * @return scenario engine
+     */
+    public static WeightScenarios of(GradeLedger ledger) {
+        return of(ledger.getRecords());
+    }
+
+    /**
+     * Cache the components of some records.
+     *
+     * @param records records to read
+     * @return scenario engine
+     */
+    public static WeightScenarios of(Collection<StudentRecord> records) {
+        WeightScenarios s = new WeightScenarios(records.size());
+        int i = 0;
+        for (StudentRecord r : records) {
+            double mid = r.getMidterm();
+            double fin = r.getFinalExam();
+            s.participation[i] = r.getParticipation();
+            s.readings[i] = r.unweightedReadingsScore();
+            s.labs[i] = r.unweightedLabsScore();
+            s.exercises[i] = r.unweightedExercisesScore();
+            s.projects[i] = r.unweightedProjectsScore();
+            s.midterm[i] = r.finalReplacesMidterm() ? fin : mid;
+            s.finalExam[i] = fin;
+            i++;
+        }
+        return s;
+    }
+
+    /**
+     * Number of students.
+     *
+     * @return row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Grade every student under each weight vector, with the default
+     * letter cutoffs.
+     *
+     * @param scenarios weight vectors, each in {@code StudentRecord.setWeights} order
+     * @return one outcome per scenario, in the same order
+     */
+    public Outcome[] evaluate(double[][] scenarios) {
+        return evaluate(scenarios, LetterScale.DEFAULT);
+    }
+
+    /**
+     * Grade every student under each weight vector with given letter cutoffs.
+     *
+     * @param scenarios weight vectors, each in {@code StudentRecord.setWeights} order
+     * @param scale     letter cutoffs
+     * @return one outcome per scenario, in the same order
+     */
+    public Outcome[] evaluate(double[][] scenarios, LetterScale scale) {
+        check(scenarios);
+        return reduce(scenarios, scale, 0, size).finish(scenarios);
+    }
+
+    /**
+     * Same as {@link #evaluate(double[][])}, split across cores with
+     * fork/join. Results are identical.
+     *
+     * @param scenarios weight vectors, each in {@code StudentRecord.setWeights} order
+     * @return one outcome per scenario, in the same order
+     */
+    public Outcome[] parallelEvaluate(double[][] scenarios) {
+        return parallelEvaluate(scenarios, LetterScale.DEFAULT);
+    }
+
+    /**
+     * Same as {@link #evaluate(double[][], LetterScale)}, split across
+     * cores with fork/join. Results are identical.
+     *
+     * @param scenarios weight vectors, each in {@code StudentRecord.setWeights} order
+     * @param scale     letter cutoffs
+     * @return one outcome per scenario, in the same order
+     */
+    public Outcome[] parallelEvaluate(double[][] scenarios, LetterScale scale) {
+        check(scenarios);
+        return ForkJoinPool.commonPool().invoke(new ScenarioTask(this, scenarios, scale, 0, size)).finish(scenarios);
+    }
+
+    /* ------------------------- types ------------------------- */
+
+    /**
+     * Result of one weight vector: letter distribution and class average.
+     */
+    public static final class Outcome {
+        private final double[] weights;
+        private final long[] letterCounts;
+        private final double average;
+
+        Outcome(double[] weights, long[] letterCounts, double average) {
+            this.weights = weights;
+            this.letterCounts = letterCounts;
+            this.average = average;
+        }
+
+        /** @return the weight vector graded (a copy) */
+        public double[] getWeights() {
+            return weights.clone();
+        }
+
+        /** @return mean total, or 0.0 if there are no students */
+        public double average() {
+            return average;
+        }
+
+        /**
+         * Students receiving a letter.
+         *
+         * @param letter one of {@code LedgerStats.LETTERS}
+         * @return count for that letter
+         */
+        public long letterCount(String letter) {
+            for (int i = 0; i < LedgerStats.LETTERS.length; i++) {
+                if (LedgerStats.LETTERS[i].equals(letter)) return letterCounts[i];
+            }
+            throw new IllegalArgumentException("Unknown letter: " + letter);
+        }
+
+        /** @return counts in {@code LedgerStats.LETTERS} order (a copy) */
+        public long[] letterCounts() {
+            return letterCounts.clone();
+        }
+    }
+
+    /* ------------------------- helpers ------------------------- */
+
+    /**
+     * Letter counts and total sums per scenario over a row range.
+     */
+    private static final class Partial {
+        final long[][] counts;
+        final double[] sums;
+
+        Partial(int scenarios) {
+            counts = new long[scenarios][LedgerStats.LETTERS.length];
+            sums = new double[scenarios];
+        }
+
+        /** Fold in the partial for the following rows. */
+        Partial merge(Partial later) {
+            for (int s = 0; s < sums.length; s++) {
+                sums[s] += later.sums[s];
+                for (int k = 0; k < counts[s].length; k++) counts[s][k] += later.counts[s][k];
+            }
+            return this;
+        }
+
+        Outcome[] finish(double[][] scenarios) {
+            Outcome[] out = new Outcome[scenarios.length];
+            for (int s = 0; s < out.length; s++) {
+                long n = 0;
+                for (long c : counts[s]) n += c;
+                out[s] = new Outcome(scenarios[s].clone(), counts[s], n == 0 ? 0.0 : sums[s] / n);
+            }
+            return out;
+        }
+    }
+
+    private static void check(double[][] scenarios) {
+        for (double[] w : scenarios) {
+            if (w.length != StudentRecord.WEIGHT_COUNT) {
+                throw new IllegalArgumentException("Expected " + StudentRecord.WEIGHT_COUNT + " weights, got " + w.length);
+            }
+        }
+    }
+
+    private Partial reduce(double[][] scenarios, LetterScale scale, int lo, int hi) {
+        if (hi - lo <= BLOCK) return block(scenarios, scale, lo, hi);
+        int mid = (lo + hi) >>> 1;
+        return reduce(scenarios, scale, lo, mid).merge(reduce(scenarios, scale, mid, hi));
+    }
+
+    /**
+     * Grade rows {@code [lo, hi)} under every scenario.
+     */
+    private Partial block(double[][] scenarios, LetterScale scale, int lo, int hi) {
+        Partial p = new Partial(scenarios.length);
+        double[] totals = new double[hi - lo];
+        for (int s = 0; s < scenarios.length; s++) {
+            double[] w = scenarios[s];
+            double w0 = w[0], w1 = w[1], w2 = w[2], w3 = w[3], w4 = w[4], w5 = w[5], w6 = w[6];
+
+            // same terms in the same order as StudentRecord.weightedTotal
+            for (int i = lo; i < hi; i++) {
+                double t = 0.0;
+                t += participation[i] * w0;
+                t += exercises[i] * w3;
+                t += projects[i] * w4;
+                t += labs[i] * w2;
+                t += readings[i] * w1;
+                t += (finalExam[i] * w6) + (midterm[i] * w5);
+                totals[i - lo] = t;
+            }
+
+            long[] counts = p.counts[s];
+            double sum = 0.0;
+            for (int i = lo; i < hi; i++) {
+                double t = totals[i - lo];
+                sum += t;
+                counts[scale.rank(t, finalExam[i] >= 60.0)]++;
+            }
+            p.sums[s] = sum;
+        }
+        return p;
+    }
+
+    /**
+     * Fork/join mirror of {@link #reduce}: same split points, same merge order.
+     */
+    private static final class ScenarioTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final WeightScenarios engine;
+        private final double[][] scenarios;
+        private final LetterScale scale;
+        private final int lo;
+        private final int hi;
+
+        ScenarioTask(WeightScenarios engine, double[][] scenarios, LetterScale scale, int lo, int hi) {
+            this.engine = engine;
+            this.scenarios = scenarios;
+            this.scale = scale;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (hi - lo <= BLOCK) return engine.block(scenarios, scale, lo, hi);
+            int mid = (lo + hi) >>> 1;
+            ScenarioTask left = new ScenarioTask(engine, scenarios, scale, lo, mid);
+            left.fork();
+            Partial right = new ScenarioTask(engine, scenarios, scale, mid, hi).compute();
+            return left.join().merge(right);
+        }
+    }
+}